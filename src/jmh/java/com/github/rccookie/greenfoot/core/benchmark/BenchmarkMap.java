@@ -0,0 +1,56 @@
+package com.github.rccookie.greenfoot.core.benchmark;
+
+import com.github.rccookie.greenfoot.core.Listener;
+import com.github.rccookie.greenfoot.core.Map;
+import com.github.rccookie.greenfoot.core.components.Linkage;
+import com.github.rccookie.greenfoot.core.components.Velocity;
+
+import java.util.Random;
+
+/**
+ * A map populated with objects using the components that are typical for
+ * a game: every object moves with a {@link Velocity}, every fourth object
+ * has a {@link Listener} and every eighth object follows another object
+ * using a {@link Linkage}.
+ * <p>The benchmarks are built with {@code mvn -P benchmark package} and
+ * run with {@code java -jar target/benchmarks.jar}.
+ */
+public class BenchmarkMap extends Map {
+
+    /**
+     * The size of benchmark maps, in pixels.
+     */
+    public static final int SIZE = 2000;
+
+    /**
+     * The objects on this map, in the order they were added.
+     */
+    public final BenchmarkObject[] objects;
+
+    /**
+     * Creates a new map with the given number of objects at random
+     * locations.
+     *
+     * @param count The number of objects to add
+     * @param seed The seed for the locations and velocities, so that
+     *             different runs use the same map
+     */
+    public BenchmarkMap(int count, long seed) {
+        super(SIZE, SIZE);
+        Random random = new Random(seed);
+        objects = new BenchmarkObject[count];
+        for(int i = 0; i < count; i++) {
+            BenchmarkObject object = objects[i] = new BenchmarkObject();
+            object.setRotation(360 * random.nextDouble());
+
+            Velocity velocity = new Velocity(object);
+            velocity.velocity.setX(random.nextDouble() * 20 - 10);
+            velocity.velocity.setY(random.nextDouble() * 20 - 10);
+
+            if(i % 4 == 0) new Listener(object, () -> object.location().x() > SIZE / 2d, () -> { });
+            if(i % 8 == 7) new Linkage(object).setTarget(objects[i - 1]);
+
+            add(object, random.nextDouble() * SIZE, random.nextDouble() * SIZE);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.rccookie.greenfoot.core.benchmark;
+
+import com.github.rccookie.greenfoot.core.GameObject;
+
+import java.util.Set;
+
+/**
+ * A plain gameobject used in benchmarks, which exposes the protected
+ * queries of {@link GameObject}.
+ */
+public class BenchmarkObject extends GameObject {
+
+    /**
+     * Calls {@link #findAllInRange(Class, double)}.
+     */
+    public <A> Set<A> allInRange(Class<A> cls, double radius) {
+        return findAllInRange(cls, radius);
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.rccookie.greenfoot.core.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks updating a whole map and querying its objects by type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int objects;
+
+    private BenchmarkMap map;
+
+    @Setup
+    public void setup() {
+        map = new BenchmarkMap(objects, 42);
+    }
+
+    @Benchmark
+    public void runFrame() {
+        map.runFrame();
+    }
+
+    @Benchmark
+    public Set<BenchmarkObject> findAll() {
+        return map.findAll(BenchmarkObject.class);
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.rccookie.greenfoot.core.benchmark;
+
+import com.github.rccookie.greenfoot.core.DefaultCollider;
+import com.github.rccookie.greenfoot.core.GameObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the spatial queries of single objects. Each invocation uses the
+ * next object of the map, so that the results do not depend on a single
+ * location.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int objects;
+
+    @Param({ "50" })
+    public double radius;
+
+    private BenchmarkMap map;
+
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        map = new BenchmarkMap(objects, 42);
+    }
+
+    private BenchmarkObject nextObject() {
+        BenchmarkObject object = map.objects[next];
+        next = (next + 1) % map.objects.length;
+        return object;
+    }
+
+    @Benchmark
+    public Set<GameObject> findAllInRange() {
+        return nextObject().allInRange(GameObject.class, radius);
+    }
+
+    @Benchmark
+    public BenchmarkObject findIntersecting() {
+        return nextObject().getComponent(DefaultCollider.class).findIntersecting(BenchmarkObject.class);
+    }
+}
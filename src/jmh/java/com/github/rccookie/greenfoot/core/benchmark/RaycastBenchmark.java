@@ -0,0 +1,73 @@
+package com.github.rccookie.greenfoot.core.benchmark;
+
+import com.github.rccookie.geometry.Vector;
+import com.github.rccookie.geometry.Vector2D;
+import com.github.rccookie.greenfoot.core.raycast.Raycast;
+import com.github.rccookie.greenfoot.core.raycast.RaycastBuilder;
+import com.github.rccookie.greenfoot.core.raycast.RaycastHit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks single raycasts from random locations in random directions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RaycastBenchmark {
+
+    /**
+     * The number of different rays that are cast in turns.
+     */
+    private static final int RAYS = 1024;
+
+    @Param({ "1000", "10000", "100000" })
+    public int objects;
+
+    @Param({ "500" })
+    public double maxDistance;
+
+    private BenchmarkMap map;
+
+    private final Vector[] origins = new Vector[RAYS];
+    private final Vector[] directions = new Vector[RAYS];
+    private int next = 0;
+
+    private RaycastBuilder builder;
+    private final RaycastHit hit = new RaycastHit();
+
+    @Setup
+    public void setup() {
+        map = new BenchmarkMap(objects, 42);
+        Random random = new Random(7);
+        for(int i = 0; i < RAYS; i++) {
+            origins[i] = Vector.of(random.nextDouble() * BenchmarkMap.SIZE, random.nextDouble() * BenchmarkMap.SIZE);
+            directions[i] = Vector2D.angled(360 * random.nextDouble());
+        }
+        builder = Raycast.builder().setMap(map).setMaxDistance(maxDistance);
+    }
+
+    @Benchmark
+    public Raycast calculate() {
+        int i = next;
+        next = (next + 1) % RAYS;
+        return Raycast.builder()
+                .setMap(map)
+                .setOrigin(origins[i])
+                .setDirection(directions[i])
+                .setMaxDistance(maxDistance)
+                .calculate();
+    }
+
+    @Benchmark
+    public boolean calculateIntoBuffer() {
+        int i = next;
+        next = (next + 1) % RAYS;
+        return builder.setOrigin(origins[i]).setDirection(directions[i]).calculate(hit);
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.rccookie.greenfoot.core;
+
+import com.github.rccookie.greenfoot.java.util.concurrent.FutureImpl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on a pool of background threads and hands their results back
+ * to the simulation thread. The results are not applied by the workers but
+ * queued, and are only completed once {@link #runCompletions()} is called
+ * from the simulation thread, so the rest of the engine never sees a value
+ * that was set concurrently.
+ * <p>This uses threads and is therefore only available in Java sessions.
+ */
+final class AsyncWorkers {
+
+    private AsyncWorkers() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The maximum number of worker threads. One core is left for the
+     * simulation thread.
+     */
+    static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * The worker pool, created when the first task is submitted.
+     */
+    private static ExecutorService executor = null;
+
+    /**
+     * Completions waiting to be run on the simulation thread, or {@code null}
+     * if no task was submitted yet.
+     */
+    private static volatile Queue<Runnable> completions = null;
+
+
+
+    /**
+     * Runs the given task on a worker thread. Once it is done, the result
+     * will be set and the callback will be called on the simulation thread.
+     * If the task throws, including errors, which are wrapped into a
+     * {@link RuntimeException}, the future completes with that exception.
+     * If the future gets cancelled before the task is done, the result is
+     * discarded.
+     */
+    static synchronized <R> void submit(Supplier<R> task, FutureImpl<R> result, Consumer<? super R> callback) {
+        if(executor == null) {
+            completions = new ConcurrentLinkedQueue<>();
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "Greenfoot-Worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            AsyncWorkers.executor = executor;
+        }
+        Queue<Runnable> completions = AsyncWorkers.completions;
+        executor.execute(() -> {
+            if(result.isCancelled()) return;
+            R value;
+            try {
+                value = task.get();
+            } catch(Throwable t) {
+                // Errors are wrapped so that the future still completes and the simulation thread learns about them
+                RuntimeException e = t instanceof RuntimeException ? (RuntimeException) t : new RuntimeException(t);
+                completions.add(() -> {
+                    if(result.isDone()) return;
+                    result.setException(e);
+                    throw e;
+                });
+                return;
+            }
+            completions.add(() -> {
+                if(result.isDone()) return;
+                RuntimeException exception = null;
+                try {
+                    result.setValue(value);
+                } catch(RuntimeException e) {
+                    exception = e;
+                }
+                // The callback is called even if a listener of the future threw
+                if(callback != null) {
+                    try {
+                        callback.accept(value);
+                    } catch(RuntimeException e) {
+                        if(exception == null) exception = e;
+                        else exception.addSuppressed(e);
+                    }
+                }
+                if(exception != null) throw exception;
+            });
+        });
+    }
+
+    /**
+     * Runs the completions of all tasks that finished since the last call.
+     * Has to be called from the simulation thread. If a task failed, its
+     * exception is thrown after all completions were run.
+     */
+    static void runCompletions() {
+        Queue<Runnable> completions = AsyncWorkers.completions;
+        if(completions == null) return;
+
+        RuntimeException exception = null;
+        Runnable completion;
+        while((completion = completions.poll()) != null) {
+            try {
+                completion.run();
+            } catch(RuntimeException e) {
+                if(exception == null) exception = e;
+                else exception.addSuppressed(e);
+            }
+        }
+        if(exception != null) throw exception;
+    }
+}
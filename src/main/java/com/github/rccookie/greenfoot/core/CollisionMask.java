@@ -0,0 +1,203 @@
+package com.github.rccookie.greenfoot.core;
+
+/**
+ * The opaque pixels of an {@link Image} at a certain rotation, stored as
+ * packed bitsets. Each row is made of {@code long} words, so overlap tests
+ * between two masks can check 64 pixels with a single AND operation.
+ * <p>Masks are cached on the image they were created from, one per rotation
+ * bucket, and get dropped as soon as that image is modified.
+ */
+final class CollisionMask {
+
+    /**
+     * The number of rotation buckets per full turn. Greenfoot renders actors
+     * with integer rotations, so one bucket per degree matches what is
+     * displayed.
+     */
+    static final int ROTATION_BUCKETS = 360;
+
+    /**
+     * The size of the mask, in pixels. For rotated images this is the size
+     * of the rotated bounding box.
+     */
+    final int width, height;
+
+    /**
+     * The number of words per row.
+     */
+    private final int words;
+
+    /**
+     * The bits of the mask, row by row. Unused bits at the end of each row are
+     * always {@code 0}.
+     */
+    private final long[] bits;
+
+
+
+    private CollisionMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        words = (width + 63) >>> 6;
+        bits = new long[words * height];
+    }
+
+
+
+    /**
+     * Returns weather the pixel at the given mask coordinates is opaque.
+     * Coordinates outside the mask are never opaque.
+     *
+     * @param x The x coordinate within the mask
+     * @param y The y coordinate within the mask
+     * @return Weather that pixel is opaque
+     */
+    boolean get(int x, int y) {
+        if(x < 0 || y < 0 || x >= width || y >= height) return false;
+        return (bits[y * words + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    private void set(int x, int y) {
+        bits[y * words + (x >>> 6)] |= 1L << (x & 63);
+    }
+
+    /**
+     * Returns the 64 pixels of the given row starting at the given column
+     * as one word, with the first pixel in the lowest bit.
+     */
+    private long word(int y, int x) {
+        int word = x >>> 6, shift = x & 63, index = y * words + word;
+        long value = bits[index] >>> shift;
+        if(shift != 0 && word + 1 < words)
+            value |= bits[index + 1] << (64 - shift);
+        return value;
+    }
+
+
+
+    /**
+     * Returns the x coordinate of the left edge of the given object's mask,
+     * in map pixels.
+     */
+    private int left(GameObject object) {
+        return (int) (object.location().x() + 0.5) - width / 2;
+    }
+
+    /**
+     * Returns the y coordinate of the top edge of the given object's mask,
+     * in map pixels.
+     */
+    private int top(GameObject object) {
+        return (int) (object.location().y() + 0.5) - height / 2;
+    }
+
+
+
+    /**
+     * Returns weather the opaque pixels of the two objects overlap.
+     *
+     * @param a The first object
+     * @param b The second object
+     * @return Weather the objects intersect pixel-perfectly
+     */
+    static boolean intersects(GameObject a, GameObject b) {
+        CollisionMask maskA = of(a), maskB = of(b);
+        if(maskA == null || maskB == null) return false;
+        return overlap(maskA, maskA.left(a), maskA.top(a), maskB, maskB.left(b), maskB.top(b));
+    }
+
+    /**
+     * Returns weather the given object has an opaque pixel at the specified
+     * map pixel.
+     *
+     * @param object The object to check
+     * @param x The x coordinate on the map
+     * @param y The y coordinate on the map
+     * @return Weather the object covers that pixel
+     */
+    static boolean contains(GameObject object, int x, int y) {
+        CollisionMask mask = of(object);
+        return mask != null && mask.get(x - mask.left(object), y - mask.top(object));
+    }
+
+    /**
+     * Returns weather the two masks, placed with their top left corners at the
+     * given coordinates, share at least one opaque pixel.
+     */
+    static boolean overlap(CollisionMask a, int ax, int ay, CollisionMask b, int bx, int by) {
+        int left = Math.max(ax, bx), right = Math.min(ax + a.width, bx + b.width);
+        int top = Math.max(ay, by), bottom = Math.min(ay + a.height, by + b.height);
+        if(left >= right || top >= bottom) return false;
+
+        for(int y = top; y < bottom; y++) {
+            for(int x = left; x < right; x += 64) {
+                long overlap = a.word(y - ay, x - ax) & b.word(y - by, x - bx);
+                if(right - x < 64) overlap &= (1L << (right - x)) - 1;
+                if(overlap != 0) return true;
+            }
+        }
+        return false;
+    }
+
+
+
+    /**
+     * Returns the mask of the given object's current image and rotation.
+     *
+     * @param object The object to get the mask for
+     * @return The object's mask, or {@code null} if it has no image
+     */
+    static CollisionMask of(GameObject object) {
+        Image image = object.getImage();
+        return image != null ? of(image, object.rotation()) : null;
+    }
+
+    /**
+     * Returns the mask of the given image at the given rotation, creating and
+     * caching it if necessary.
+     *
+     * @param image The image to get the mask of
+     * @param rotation The rotation of the image, in degrees
+     * @return The mask of the rotated image
+     */
+    static CollisionMask of(Image image, double rotation) {
+        int bucket = (int) Math.floor(rotation + 0.5) % ROTATION_BUCKETS;
+        if(bucket < 0) bucket += ROTATION_BUCKETS;
+
+        CollisionMask[] masks = image.collisionMasks;
+        if(masks == null) image.collisionMasks = masks = new CollisionMask[ROTATION_BUCKETS];
+        CollisionMask mask = masks[bucket];
+        if(mask == null) masks[bucket] = mask = create(image, bucket);
+        return mask;
+    }
+
+    private static CollisionMask create(Image image, int rotation) {
+        int width = image.getWidth(), height = image.getHeight();
+        int[] pixels = image.getPixels();
+
+        if(rotation == 0) {
+            CollisionMask mask = new CollisionMask(width, height);
+            for(int y = 0; y < height; y++) for(int x = 0; x < width; x++)
+                if((pixels[y * width + x] >>> 24) != 0) mask.set(x, y);
+            return mask;
+        }
+
+        double radians = Math.toRadians(rotation), sin = Math.sin(radians), cos = Math.cos(radians);
+        int rotatedWidth = (int) Math.ceil(Math.abs(width * cos) + Math.abs(height * sin) - 1e-9);
+        int rotatedHeight = (int) Math.ceil(Math.abs(width * sin) + Math.abs(height * cos) - 1e-9);
+        CollisionMask mask = new CollisionMask(rotatedWidth, rotatedHeight);
+
+        // Sample the source image at the center of each target pixel, rotated back
+        for(int y = 0; y < rotatedHeight; y++) {
+            double dy = y + 0.5 - rotatedHeight / 2d;
+            for(int x = 0; x < rotatedWidth; x++) {
+                double dx = x + 0.5 - rotatedWidth / 2d;
+                int sx = (int) Math.floor(dx * cos + dy * sin + width / 2d);
+                int sy = (int) Math.floor(-dx * sin + dy * cos + height / 2d);
+                if(sx >= 0 && sy >= 0 && sx < width && sy < height && (pixels[sy * width + sx] >>> 24) != 0)
+                    mask.set(x, y);
+            }
+        }
+        return mask;
+    }
+}
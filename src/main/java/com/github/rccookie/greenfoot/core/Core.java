@@ -1,5 +1,6 @@
 package com.github.rccookie.greenfoot.core;
 
+import com.github.rccookie.greenfoot.core.metrics.EngineMetrics;
 import com.github.rccookie.greenfoot.java.util.Optional;
 import com.github.rccookie.util.Arguments;
 import com.github.rccookie.util.Console;
@@ -238,9 +239,21 @@ public final class Core  {
      * exactly but rather a slightly higher one due to limitations of Greenfoot's 100-step
      * speed system.
      *
+     * <p>For exact frame rates in java sessions, use a {@link FramePacer} instead.
+     * If a frame pacer is currently driving the map, its frame rate is changed
+     * instead, or it is stopped if the scenario gets paused.
+     *
      * @param fps The target fps. Passing {@code 0} will pause the scenario instead
      */
     public static void setFps(int fps) {
+        FramePacer pacer = FramePacer.getActive();
+        if(pacer != null) {
+            if(fps > 0) {
+                pacer.setFps(fps);
+                return;
+            }
+            FramePacer.stopActive();
+        }
 
         long delay = 1000000000L / Math.max(fps, 1);
         double speed = fps == 0 ? 0 :  delayToSpeed(delay) * 0.01;
@@ -379,6 +392,7 @@ public final class Core  {
      * @param flag Weather to run the act loop.
      */
     public static void setRun(boolean flag) {
+        if(flag) FramePacer.stopActive();
         Simulation.getInstance().setPaused(!flag);
         running = flag;
         Console.mapDebug("Now running", flag);
@@ -489,5 +503,6 @@ public final class Core  {
 
         Time.init();
         Execution.init();
+        EngineMetrics.init();
     }
 }
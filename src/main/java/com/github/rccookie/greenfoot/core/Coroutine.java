@@ -0,0 +1,329 @@
+package com.github.rccookie.greenfoot.core;
+
+import com.github.rccookie.greenfoot.java.util.concurrent.Future;
+import com.github.rccookie.greenfoot.java.util.concurrent.FutureImpl;
+import com.github.rccookie.util.Arguments;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A script that is written as straight-line code but runs over multiple
+ * frames. The script can wait for some time or for a condition using
+ * {@link #await(double)}, {@link #awaitUntil(BooleanSupplier)} and
+ * {@link #awaitFrame()}, and is then resumed by {@link Execution} once it is
+ * due, in the phase it was started for:
+ * <pre>
+ * Coroutine.start(c -&gt; {
+ *     c.await(2);
+ *     enemy.setLocation(100, 100);
+ *     c.awaitUntil(() -&gt; player.getX() &gt; 300);
+ *     enemy.remove();
+ * });
+ * </pre>
+ * <p>Each coroutine runs on its own thread, but never concurrently with the
+ * simulation: the simulation thread hands control to the coroutine and
+ * waits until it awaits something or finishes, so scripts can use the map
+ * and its objects like any other task. A waiting coroutine only occupies a
+ * scheduled task; waiting for some time does not cost anything per frame,
+ * and waiting for a condition polls it once per frame. On Java 21 or later
+ * coroutines use virtual threads, otherwise daemon threads with a small
+ * stack.
+ * <p>Coroutines use threads and are therefore only available in Java
+ * sessions.
+ */
+public final class Coroutine {
+
+    /**
+     * The code of a coroutine.
+     */
+    @FunctionalInterface
+    public interface Script {
+
+        /**
+         * Runs the script.
+         *
+         * @param coroutine The coroutine running the script, used to await
+         */
+        void run(Coroutine coroutine);
+    }
+
+
+
+    /**
+     * The stack size of coroutine threads if virtual threads are not
+     * available.
+     */
+    private static final long STACK_SIZE = 256 * 1024;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * The methods {@code Thread.ofVirtual()} and
+     * {@code Thread.Builder.unstarted(Runnable)}, or {@code null} if virtual
+     * threads are not available. Resolved when the first coroutine starts.
+     */
+    private static Method ofVirtual = null, unstarted = null;
+    private static boolean virtualThreadsResolved = false;
+
+
+
+    private final Execution.Phase phase;
+    private final Script script;
+    private final FutureImpl<Void> result = new FutureImpl<>();
+
+    /**
+     * Used to hand control from the simulation to the coroutine and back.
+     */
+    private final Semaphore toCoroutine = new Semaphore(0), toSimulation = new Semaphore(0);
+
+    private Thread thread = null;
+
+    /**
+     * The scheduled task that resumes this coroutine, or {@code null}.
+     */
+    private Future<?> resumeTask = null;
+
+    /**
+     * Weather the coroutine currently has control. Only accessed by the
+     * thread that resumed it.
+     */
+    private boolean running = false;
+
+    /**
+     * Weather the script has returned. Written by the coroutine thread
+     * before handing back control.
+     */
+    private boolean finished = false;
+
+    /**
+     * The exception thrown by the script, or {@code null}.
+     */
+    private Throwable failure = null;
+
+    private Coroutine(Execution.Phase phase, Script script) {
+        this.phase = phase;
+        this.script = script;
+    }
+
+
+
+    /**
+     * Starts the given script as a coroutine that is resumed in the
+     * {@link Execution.Phase#UPDATE} phase. The script runs immediately until
+     * it awaits something for the first time.
+     *
+     * @param script The script to run
+     * @return A future that completes when the script returns. Cancelling it
+     *         stops the script at the point where it is waiting
+     * @throws UnsupportedOperationException If the session is not a java
+     *                                       session
+     */
+    public static Future<Void> start(Script script) {
+        return start(Execution.Phase.UPDATE, script);
+    }
+
+    /**
+     * Starts the given script as a coroutine that is resumed in the given
+     * phase. The script runs immediately until it awaits something for the
+     * first time.
+     *
+     * @param phase The phase the coroutine should be resumed in
+     * @param script The script to run
+     * @return A future that completes when the script returns. Cancelling it
+     *         stops the script at the point where it is waiting
+     * @throws UnsupportedOperationException If the session is not a java
+     *                                       session
+     */
+    public static Future<Void> start(Execution.Phase phase, Script script) {
+        Arguments.checkNull(phase);
+        Arguments.checkNull(script);
+        if(!Core.getRealSession().isJava())
+            throw new UnsupportedOperationException("Coroutines are only supported in java sessions");
+
+        Coroutine coroutine = new Coroutine(phase, script);
+        coroutine.result.whenDone(f -> {
+            if(f.isCancelled()) coroutine.stop();
+        });
+        coroutine.thread = newThread(coroutine::runScript);
+        coroutine.thread.start();
+        coroutine.resume();
+        return coroutine.result;
+    }
+
+
+
+    /**
+     * Suspends the coroutine for the given number of seconds, as measured by
+     * {@link Time#seconds()}.
+     *
+     * @param seconds The time to wait, in seconds
+     * @throws IllegalStateException If not called from within the script of
+     *                               this coroutine
+     */
+    public void await(double seconds) {
+        checkCurrent();
+        suspend(Execution.runLater(phase, resumeAction(), seconds));
+    }
+
+    /**
+     * Suspends the coroutine until the given condition is met. The condition
+     * is checked once per frame. If it is already met, the coroutine
+     * continues immediately.
+     *
+     * @param condition The condition to wait for
+     * @throws IllegalStateException If not called from within the script of
+     *                               this coroutine
+     */
+    public void awaitUntil(BooleanSupplier condition) {
+        Arguments.checkNull(condition);
+        checkCurrent();
+        if(condition.getAsBoolean()) return;
+        suspend(Execution.runWhen(phase, resumeAction(), condition));
+    }
+
+    /**
+     * Suspends the coroutine until the next frame.
+     *
+     * @throws IllegalStateException If not called from within the script of
+     *                               this coroutine
+     */
+    public void awaitFrame() {
+        checkCurrent();
+        suspend(Execution.runLater(phase, resumeAction()));
+    }
+
+    /**
+     * Returns the phase this coroutine is resumed in.
+     *
+     * @return The phase of this coroutine
+     */
+    public Execution.Phase getPhase() {
+        return phase;
+    }
+
+
+
+    private void checkCurrent() {
+        if(Thread.currentThread() != thread)
+            throw new IllegalStateException("A coroutine can only await from within its own script");
+    }
+
+    private Supplier<Void> resumeAction() {
+        return () -> {
+            resume();
+            return null;
+        };
+    }
+
+    /**
+     * Hands control back to the simulation until the given task resumes the
+     * coroutine. Called on the coroutine thread.
+     */
+    private void suspend(Future<?> resumeTask) {
+        if(result.isCancelled()) {
+            resumeTask.cancel();
+            throw Cancellation.INSTANCE;
+        }
+        this.resumeTask = resumeTask;
+        toSimulation.release();
+        toCoroutine.acquireUninterruptibly();
+        if(result.isCancelled()) throw Cancellation.INSTANCE;
+    }
+
+    /**
+     * Runs the coroutine until it suspends or finishes. Called on the
+     * simulation thread. If the script failed, its exception is rethrown.
+     */
+    private void resume() {
+        resumeTask = null;
+        if(finished) return;
+        running = true;
+        toCoroutine.release();
+        toSimulation.acquireUninterruptibly();
+        running = false;
+        if(!finished) return;
+
+        Throwable failure = this.failure;
+        if(failure == null) {
+            if(!result.isDone()) result.setValue(null);
+        }
+        else if(failure instanceof RuntimeException) {
+            if(!result.isDone()) result.setException((RuntimeException) failure);
+            throw (RuntimeException) failure;
+        }
+        else {
+            RuntimeException exception = new RuntimeException(failure);
+            if(!result.isDone()) result.setException(exception);
+            if(failure instanceof Error) throw (Error) failure;
+            throw exception;
+        }
+    }
+
+    /**
+     * Stops the coroutine after it has been cancelled. If it is waiting, it
+     * is resumed so that the await throws and the thread terminates. If the
+     * coroutine is not waiting, for example because it cancelled itself, it
+     * stops at its next await.
+     */
+    private void stop() {
+        if(running || Thread.currentThread() == thread) return;
+        Future<?> resumeTask = this.resumeTask;
+        if(resumeTask != null) resumeTask.cancel();
+        if(thread != null) resume();
+    }
+
+    private void runScript() {
+        toCoroutine.acquireUninterruptibly();
+        try {
+            if(!result.isCancelled()) script.run(this);
+        } catch(Cancellation ignored) {
+        } catch(Throwable t) {
+            failure = t;
+        }
+        finished = true;
+        toSimulation.release();
+    }
+
+
+
+    private static Thread newThread(Runnable action) {
+        if(!virtualThreadsResolved) {
+            try {
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+            } catch(ReflectiveOperationException e) {
+                ofVirtual = unstarted = null;
+            }
+            virtualThreadsResolved = true;
+        }
+        if(ofVirtual != null) {
+            try {
+                return (Thread) unstarted.invoke(ofVirtual.invoke(null), action);
+            } catch(ReflectiveOperationException e) {
+                ofVirtual = unstarted = null;
+            }
+        }
+        Thread thread = new Thread(null, action, "Greenfoot-Coroutine-" + THREAD_COUNT.incrementAndGet(), STACK_SIZE);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+
+
+    /**
+     * Thrown from an await of a cancelled coroutine to unwind its script.
+     * This is an error so that scripts catching exceptions do not catch it.
+     */
+    private static final class Cancellation extends Error {
+
+        static final Cancellation INSTANCE = new Cancellation();
+
+        private Cancellation() {
+            super(null, null, false, false);
+        }
+    }
+}
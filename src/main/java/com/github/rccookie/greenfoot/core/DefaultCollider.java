@@ -5,14 +5,16 @@ import com.github.rccookie.geometry.Edge;
 import com.github.rccookie.geometry.Vector;
 import com.github.rccookie.geometry.Vector2D;
 import com.github.rccookie.greenfoot.core.components.Collider;
+import com.github.rccookie.greenfoot.core.components.ColliderTree;
+import com.github.rccookie.greenfoot.core.metrics.EngineMetrics;
 import com.github.rccookie.greenfoot.core.raycast.Raycast;
 import com.github.rccookie.greenfoot.java.util.Optional;
 import com.github.rccookie.util.Arguments;
 import greenfoot.ActorVisitor;
 
 import java.util.Arrays;
-import java.util.Objects;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class DefaultCollider extends Collider {
@@ -24,12 +26,43 @@ public class DefaultCollider extends Collider {
 
     private EdgeCache cache;
 
+    /**
+     * Weather intersection and containment checks should only consider
+     * the opaque pixels of the object's image.
+     */
+    private boolean pixelPerfect = false;
+
 
     public DefaultCollider(GameObject gameObject) {
         super(gameObject);
     }
 
 
+
+    /**
+     * Returns weather this collider only considers the opaque pixels of the
+     * object's image, rather than its rotated bounding box.
+     *
+     * @return Weather this collider is pixel-perfect
+     */
+    public boolean isPixelPerfect() {
+        return pixelPerfect;
+    }
+
+    /**
+     * Sets weather this collider should only consider the opaque pixels of the
+     * object's image. Pixel-perfect checks use precomputed alpha bitmasks that
+     * are cached per image and rotation, so they only get expensive when the
+     * image or rotation changes frequently.
+     *
+     * @param pixelPerfect Weather to use pixel-perfect collision checks
+     */
+    public void setPixelPerfect(boolean pixelPerfect) {
+        this.pixelPerfect = pixelPerfect;
+    }
+
+
+
     @Override
     @SuppressWarnings("unchecked")
     public <A> Set<A> findAllIntersecting(Class<A> cls) {
@@ -38,6 +71,8 @@ public class DefaultCollider extends Collider {
                 .stream()
                 .map(GameObject.SupportActor::gameObject)
                 .filter(cls::isInstance)
+                .peek(o -> EngineMetrics.COLLISION_PAIRS.increment())
+                .filter(o -> !isPixelPerfectWith(o.getComponent(Collider.class)) || CollisionMask.intersects(gameObject, o))
                 .map(o -> (A)o)
                 .collect(Collectors.toSet());
     }
@@ -46,12 +81,19 @@ public class DefaultCollider extends Collider {
     @SuppressWarnings("unchecked")
     public <A> A findIntersecting(Class<A> cls) {
         Arguments.checkNull(cls);
-        return gameObject.getMap().stream()
-                .filter(obj -> cls.isInstance(obj) && obj.hasComponent(Collider.class))
-                .filter(other -> intersects(other.getComponent(Collider.class)))
-                .map(o -> (A)o)
-                .findAny()
-                .orElse(null);
+        Map map = gameObject.getMap();
+        Predicate<GameObject> filter = other -> other != gameObject && cls.isInstance(other) && other.hasComponent(Collider.class)
+                && intersects(other.getComponent(Collider.class));
+
+        for(GameObject other : map.getDynamicObjects())
+            if(filter.test(other)) return (A) other;
+
+        ColliderTree staticColliders = map.getStaticColliders();
+        Bounds bounds = getBounds();
+        if(bounds == null)
+            return (A) staticColliders.find(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, filter);
+        Vector min = bounds.getMin(), max = bounds.getMax();
+        return (A) staticColliders.find(min.x(), min.y(), max.x(), max.y(), filter);
     }
 
     @Override
@@ -63,44 +105,40 @@ public class DefaultCollider extends Collider {
     @Override
     public boolean intersects(Collider other) {
         Arguments.checkNull(other);
-        if(other instanceof DefaultCollider)
+        EngineMetrics.COLLISION_PAIRS.increment();
+        if(other instanceof DefaultCollider) {
+            if(isPixelPerfectWith(other))
+                return CollisionMask.intersects(gameObject, other.gameObject);
             return gameObject.actor.intersects(other.gameObject.actor);
+        }
         return false;
     }
 
+    /**
+     * Returns weather intersections with the given collider are checked
+     * pixel-perfect, which is the case if either of the colliders is.
+     */
+    private boolean isPixelPerfectWith(Collider other) {
+        return pixelPerfect || (other instanceof DefaultCollider && ((DefaultCollider) other).pixelPerfect);
+    }
+
     @Override
     public boolean contains(Vector point) {
+        if(pixelPerfect)
+            return CollisionMask.contains(gameObject, (int) (point.x() + 0.5), (int) (point.y() + 0.5));
         return ActorVisitor.containsPoint(gameObject.actor, (int) (point.x() + 0.5), (int) (point.y() + 0.5));
     }
 
     @Override
     public Bounds getBounds() {
-        return null;
+        if(gameObject.getWidth() == 0 && gameObject.getHeight() == 0) return null;
+        return new Bounds(gameObject.location(), Vector.of(gameObject.getBoundsWidth(), gameObject.getBoundsHeight()));
     }
 
     @Override
     public Border[] getBorders(Vector towards) {
-        Vector size = gameObject.getSize();
-        if(size.isZero()) return new Border[0];
-        final double rotation = gameObject.rotation();
-        final Vector loc = gameObject.location();
-
-        EdgeCache cache;
-
-
-        if(Raycast.THREADSAFE) {
-            synchronized (this) {
-                cache = this.cache;
-                if(cacheChanged(size, rotation, cache))
-                    this.cache = cache = calculateBorders(size, rotation, loc);
-            }
-        }
-        else {
-            cache = this.cache;
-            if(cacheChanged(size, rotation, cache))
-                this.cache = cache = calculateBorders(size, rotation, loc);
-        }
-
+        EdgeCache cache = getCache();
+        if(cache == null) return new Border[0];
 
         if(cache.edges.length == 2) {
             double angle = Vector2D.smallestAngle(Vector.between(towards, cache.edges[0].start).get2D(), cache.normals[0].get2D());
@@ -121,8 +159,53 @@ public class DefaultCollider extends Collider {
         return first != null ? new Border[] { first } : new Border[0];
     }
 
-    private boolean cacheChanged(Vector size, double rotation, EdgeCache cache) {
-        return cache == null || !cache.location.equals(gameObject.location()) || rotation != cache.rotation || !Objects.equals(size, cache.size);
+    @Override
+    public Border[] getAllBorders() {
+        EdgeCache cache = getCache();
+        return cache != null ? cache.edges : new Border[0];
+    }
+
+    @Override
+    public double raycast(double x, double y, double dx, double dy, double maxDistance, double[] normal) {
+        EdgeCache cache = getCache();
+        if(cache == null) return maxDistance;
+        for(Edge edge : cache.edges)
+            maxDistance = raycastEdge(x, y, dx, dy, maxDistance, edge.start.x(), edge.start.y(), edge.end.x(), edge.end.y(), normal);
+        return maxDistance;
+    }
+
+    /**
+     * Returns the edges for the current transform of the object, or
+     * {@code null} if the object has no size.
+     */
+    private EdgeCache getCache() {
+        // Static colliders are checked as well because they may be moved as long as invalidateStaticColliders()
+        // is called afterwards. The size is compared as ints so that checking the cache does not create a vector
+        EdgeCache cache;
+        int width = gameObject.getWidth(), height = gameObject.getHeight();
+        if(width == 0 && height == 0) return null;
+        final double rotation = gameObject.rotation();
+        final Vector loc = gameObject.location();
+
+        //noinspection deprecation
+        if(Raycast.THREADSAFE) {
+            synchronized (this) {
+                cache = this.cache;
+                if(cacheChanged(width, height, rotation, cache))
+                    this.cache = cache = calculateBorders(Vector.of(width, height), rotation, loc);
+            }
+        }
+        else {
+            cache = this.cache;
+            if(cacheChanged(width, height, rotation, cache))
+                this.cache = cache = calculateBorders(Vector.of(width, height), rotation, loc);
+        }
+        return cache;
+    }
+
+    private boolean cacheChanged(int width, int height, double rotation, EdgeCache cache) {
+        return cache == null || !cache.location.equals(gameObject.location()) || rotation != cache.rotation
+                || width != cache.size.x() || height != cache.size.y();
     }
 
     private EdgeCache calculateBorders(Vector size, double rotation, Vector loc) {
@@ -157,7 +240,8 @@ public class DefaultCollider extends Collider {
             };
             normals = new Vector[] { heightI, width, height, widthI };
         }
-        return new EdgeCache(edges, normals, loc, rotation, size);
+        // Copy the location, otherwise the cache would always compare the location with itself
+        return new EdgeCache(edges, normals, loc.clone(), rotation, size);
     }
 
 
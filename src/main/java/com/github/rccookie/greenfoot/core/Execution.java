@@ -1,43 +1,187 @@
 package com.github.rccookie.greenfoot.core;
 
+import com.github.rccookie.greenfoot.core.jfr.EngineEvents;
+import com.github.rccookie.greenfoot.core.jfr.TaskEvent;
+import com.github.rccookie.greenfoot.core.metrics.EngineMetrics;
 import com.github.rccookie.greenfoot.java.util.concurrent.Future;
 import com.github.rccookie.greenfoot.java.util.concurrent.FutureImpl;
-import com.github.rccookie.util.Console;
+import com.github.rccookie.util.Arguments;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public final class Execution {
 
-    private static final Set<ExecutionTask<Object>> TASKS = new HashSet<>();
-    private static final Set<RepeatingExecutionTask> REPEATING_TASKS = new HashSet<>();
+    /**
+     * The phases of a frame that tasks can be pinned to. Each phase has its
+     * own task queue which is only run once per frame, in that phase.
+     */
+    public enum Phase {
+        /**
+         * At the start of the frame, after the previous frame has been
+         * rendered and before anything else is updated.
+         */
+        AFTER_RENDER,
+        /**
+         * In the early global update, before the map and its objects are
+         * updated.
+         */
+        EARLY,
+        /**
+         * After the {@code update()} method of all objects was called, and
+         * before the late update of the objects.
+         */
+        UPDATE,
+        /**
+         * In the late global update, after the map and its objects have been
+         * updated completely.
+         */
+        LATE
+    }
+
+    /**
+     * The queues of the tasks pinned to a specific phase, indexed by the
+     * ordinal of the phase.
+     */
+    private static final TaskQueue[] PHASE_TASKS = new TaskQueue[Phase.values().length];
+
+    /**
+     * The tasks not pinned to any phase. These run in both the early and the
+     * late global update, whichever comes first after they are due.
+     */
+    private static final TaskQueue TASKS = new TaskQueue();
+
+    /**
+     * Tasks posted from other threads using {@link #post(Runnable)}.
+     */
+    private static final Inbox INBOX = new Inbox();
+
+    /**
+     * The maximum number of tasks taken from {@link #INBOX} per frame.
+     */
+    private static int inboxBudget = 256;
+
+    /**
+     * The incremental jobs that are not done yet, in the order they were
+     * started.
+     */
+    private static final List<BudgetedJob> JOBS = new ArrayList<>();
+
+    /**
+     * The total time in milliseconds all jobs may take per frame.
+     */
+    private static double jobBudget = 4;
+
+    /**
+     * The index of the job that runs first in the next frame. Rotates so
+     * that no job is preferred over the others.
+     */
+    private static int firstJob = 0;
+
+    /**
+     * Counter to keep tasks that are due at the same time in the order they
+     * were scheduled in.
+     */
+    private static long taskCount = 0;
 
     static {
-        Core.registerOnEarlyGlobalUpdate(Execution::runTasks);
-        Core.registerOnGlobalUpdate(Execution::runTasks);
-        repeat(() -> Console.custom("fps", Time.stableFps()), 1, 1);
+        for(int i=0; i<PHASE_TASKS.length; i++) PHASE_TASKS[i] = new TaskQueue();
+        Core.registerOnEarlyGlobalUpdate(AsyncWorkers::runCompletions);
+        Core.registerOnEarlyGlobalUpdate(Execution::drainInbox);
+        Core.registerOnEarlyGlobalUpdate(() -> {
+            TASKS.run();
+            PHASE_TASKS[Phase.EARLY.ordinal()].run();
+        });
+        Core.registerOnGlobalUpdate(Execution::runJobs);
+        Core.registerOnGlobalUpdate(() -> {
+            TASKS.run();
+            PHASE_TASKS[Phase.LATE.ordinal()].run();
+        });
     }
 
 
 
-    @SuppressWarnings("unchecked")
-    private static void runTasks() {
-        for(ExecutionTask<Object> task : TASKS.toArray(new ExecutionTask[0])) {
-            if(task.result.isCancelled())
-                TASKS.remove(task);
-            else if(task.requirement.getAsBoolean()) {
-                task.result.setValue(task.action.get());
-                TASKS.remove(task);
+    /**
+     * Runs the tasks pinned to the given phase that are due. Used for the
+     * phases that are not part of the global updates.
+     */
+    static RuntimeException runTasks(Phase phase, RuntimeException exception) {
+        try {
+            PHASE_TASKS[phase.ordinal()].run();
+        } catch(RuntimeException e) {
+            if(exception == null) return e;
+            else exception.addSuppressed(e);
+        }
+        return exception;
+    }
+
+    /**
+     * Runs up to {@link #inboxBudget} tasks posted from other threads. If a
+     * task throws, the remaining tasks still run and the exception is thrown
+     * afterwards.
+     */
+    private static void drainInbox() {
+        RuntimeException exception = null;
+        Runnable task;
+        for(int i=0; i<inboxBudget && (task = INBOX.poll()) != null; i++) {
+            try {
+                TaskEvent event = EngineEvents.beginTask(false);
+                task.run();
+                EngineEvents.endTask(event);
+                EngineMetrics.TASKS.increment();
+            } catch(RuntimeException e) {
+                if(exception == null) exception = e;
+                else exception.addSuppressed(e);
             }
         }
-        for(RepeatingExecutionTask task : REPEATING_TASKS.toArray(new RepeatingExecutionTask[0])) {
-            if(task.requirement.getAsBoolean()) {
-                if(!task.action.getAsBoolean())
-                    REPEATING_TASKS.remove(task);
+        if(exception != null) throw exception;
+    }
+
+    /**
+     * Runs steps of the incremental jobs. The total job budget is split
+     * between the running jobs. Each job gets an equal share of the time
+     * that is left when it is its turn, limited to its own budget, so time
+     * not used by one job is available to the jobs after it. Every job
+     * runs at least one step per frame.
+     */
+    private static void runJobs() {
+        if(JOBS.isEmpty()) return;
+
+        int count = JOBS.size();
+        BudgetedJob[] jobs = JOBS.toArray(new BudgetedJob[0]);
+        int first = firstJob % count;
+        firstJob = first + 1;
+
+        RuntimeException exception = null;
+        long remaining = (long) (jobBudget * 1000000);
+        for(int i=0; i<count; i++) {
+            BudgetedJob job = jobs[(first + i) % count];
+            long slice = Math.min(job.budget, Math.max(0, remaining) / (count - i));
+            long start = System.nanoTime();
+            // Infinite budgets are converted to Long.MAX_VALUE, so the deadline may overflow
+            long deadline = start + slice;
+            if(deadline < start) deadline = Long.MAX_VALUE;
+            try {
+                if(!job.run(deadline)) JOBS.remove(job);
+            } catch(RuntimeException e) {
+                JOBS.remove(job);
+                if(exception == null) exception = e;
+                else exception.addSuppressed(e);
             }
+            remaining -= System.nanoTime() - start;
         }
+        if(exception != null) throw exception;
+    }
+
+    private static TaskQueue queue(Phase phase) {
+        Arguments.checkNull(phase);
+        return PHASE_TASKS[phase.ordinal()];
     }
 
 
@@ -47,10 +191,7 @@ public final class Execution {
     }
 
     public static void repeat(Runnable task, double delay, double initialDelay) {
-        repeat(() -> {
-            task.run();
-            return true;
-        }, delay, initialDelay);
+        repeat(asBooleanSupplier(task), delay, initialDelay);
     }
 
     public static void repeat(BooleanSupplier task, double delay) {
@@ -58,15 +199,7 @@ public final class Execution {
     }
 
     public static void repeat(BooleanSupplier task, double delay, double initialDelay) {
-        REPEATING_TASKS.add(new RepeatingExecutionTask(task, new BooleanSupplier() {
-            double nextTime = Time.seconds() + initialDelay;
-            @Override
-            public boolean getAsBoolean() {
-                if(Time.seconds() < nextTime) return false;
-                nextTime += delay;
-                return true;
-            }
-        }));
+        TASKS.schedule(new RepeatingExecutionTask(task, delay), Time.seconds() + initialDelay);
     }
 
     public static void runLater(Runnable task) {
@@ -74,28 +207,210 @@ public final class Execution {
     }
 
     public static void runLater(Runnable task, double delay) {
-        runLater(() -> {
-            task.run();
-            return null;
-        }, delay);
+        runLater(asSupplier(task), delay);
     }
 
 
 
     public static <R> Future<R> runLater(Supplier<R> task) {
-        return runWhen(task, () -> true);
+        return runLater(task, 0);
     }
 
     public static <R> Future<R> runLater(Supplier<R> task, double delay) {
-        double executionTime = Time.seconds() + delay;
-        return runWhen(task, () -> Time.seconds() >= executionTime);
+        return TASKS.schedule(task, delay);
     }
 
-    @SuppressWarnings("unchecked")
     public static <R> Future<R> runWhen(Supplier<R> task, BooleanSupplier requirement) {
-        ExecutionTask<R> executionTask = new ExecutionTask<>(task, requirement);
-        TASKS.add((ExecutionTask<Object>) executionTask);
-        return executionTask.result;
+        return TASKS.add(task, requirement);
+    }
+
+
+
+    /**
+     * Runs the given task on a background thread. The result is set on the
+     * returned future on the simulation thread, in the first early global
+     * update after the task finished. If the task throws an exception, it
+     * is rethrown there.
+     * <p>The task runs concurrently with the simulation, so it must not
+     * modify the map, its objects or anything else the simulation uses
+     * without synchronizing. The number of tasks running at the same time
+     * is limited by the number of processors; additional tasks wait until
+     * a worker is available.
+     * <p>Online there are no threads, so the task is run on the simulation
+     * thread like a task passed to {@link #runLater(Supplier)}.
+     *
+     * @param task The task to run in the background
+     * @return A future for the result of the task
+     */
+    public static <R> Future<R> runAsync(Supplier<R> task) {
+        return runAsync(task, null);
+    }
+
+    /**
+     * Runs the given task on a background thread and calls the callback with
+     * its result on the simulation thread, in the first early global update
+     * after the task finished. See {@link #runAsync(Supplier)} for details.
+     *
+     * @param task The task to run in the background
+     * @param callback The callback to call with the result, may be
+     *                 {@code null}
+     * @return A future for the result of the task
+     */
+    public static <R> Future<R> runAsync(Supplier<R> task, Consumer<? super R> callback) {
+        Arguments.checkNull(task);
+        if(!Core.getRealSession().isJava()) {
+            return runLater(() -> {
+                R value = task.get();
+                if(callback != null) callback.accept(value);
+                return value;
+            });
+        }
+        FutureImpl<R> result = new FutureImpl<>();
+        AsyncWorkers.submit(task, result, callback);
+        return result;
+    }
+
+
+
+    /**
+     * Posts the given task to be run on the simulation thread in the next
+     * early global update. Unlike all other methods of this class, this
+     * method is thread-safe and does not block, so it can be used to hand
+     * work from other threads, like network threads, to the simulation.
+     * <p>At most {@link #getInboxBudget()} posted tasks are run per frame,
+     * in the order they were posted. Tasks exceeding that budget are run in
+     * the following frames.
+     *
+     * @param task The task to run on the simulation thread
+     */
+    public static void post(Runnable task) {
+        INBOX.post(Arguments.checkNull(task));
+    }
+
+    /**
+     * Returns the maximum number of tasks posted using {@link #post(Runnable)}
+     * that get run per frame.
+     *
+     * @return The number of posted tasks run per frame
+     */
+    public static int getInboxBudget() {
+        return inboxBudget;
+    }
+
+    /**
+     * Sets the maximum number of tasks posted using {@link #post(Runnable)}
+     * that get run per frame. The default is 256.
+     *
+     * @param budget The number of posted tasks to run per frame, at least 1
+     */
+    public static void setInboxBudget(int budget) {
+        inboxBudget = Arguments.checkRange(budget, 1, null);
+    }
+
+
+
+    /**
+     * Starts an incremental job that performs long work in small steps
+     * spread over several frames. In the late global update of each frame,
+     * the step is called repeatedly until it returns {@code false}, or until
+     * the job has used its share of the time available for jobs in this
+     * frame. It is then resumed in the next frame.
+     * <p>The time of all jobs together is limited to
+     * {@link #getJobBudget()} milliseconds per frame and split fairly
+     * between all running jobs. Each job always runs at least one step per
+     * frame, so a single step should be short compared to the budget.
+     *
+     * @param step Performs a single step of the job and returns weather
+     *             there is work left to do
+     * @param budget The maximum time in milliseconds the job may take per
+     *               frame, may be {@link Double#POSITIVE_INFINITY} to only
+     *               be limited by the total job budget
+     * @return A future that completes once the job is done. Cancelling it
+     *         stops the job
+     */
+    public static Future<Void> runJob(BooleanSupplier step, double budget) {
+        Arguments.checkNull(step);
+        Arguments.checkRange(budget, 0, Double.POSITIVE_INFINITY);
+        BudgetedJob job = new BudgetedJob(step, (long) (budget * 1000000));
+        JOBS.add(job);
+        return job.result;
+    }
+
+    /**
+     * Returns the total time in milliseconds all jobs started using
+     * {@link #runJob(BooleanSupplier, double)} may take per frame.
+     *
+     * @return The job budget per frame, in milliseconds
+     */
+    public static double getJobBudget() {
+        return jobBudget;
+    }
+
+    /**
+     * Sets the total time in milliseconds all jobs started using
+     * {@link #runJob(BooleanSupplier, double)} may take per frame. The
+     * default is 4 milliseconds.
+     *
+     * @param budget The job budget per frame, in milliseconds, may be
+     *               {@link Double#POSITIVE_INFINITY} to let jobs run until
+     *               they are done
+     */
+    public static void setJobBudget(double budget) {
+        jobBudget = Arguments.checkRange(budget, 0, Double.POSITIVE_INFINITY);
+    }
+
+
+
+    public static void repeat(Phase phase, Runnable task, double delay) {
+        repeat(phase, task, delay, 0);
+    }
+
+    public static void repeat(Phase phase, Runnable task, double delay, double initialDelay) {
+        repeat(phase, asBooleanSupplier(task), delay, initialDelay);
+    }
+
+    public static void repeat(Phase phase, BooleanSupplier task, double delay) {
+        repeat(phase, task, delay, 0);
+    }
+
+    public static void repeat(Phase phase, BooleanSupplier task, double delay, double initialDelay) {
+        queue(phase).schedule(new RepeatingExecutionTask(task, delay), Time.seconds() + initialDelay);
+    }
+
+    public static void runLater(Phase phase, Runnable task) {
+        runLater(phase, task, 0);
+    }
+
+    public static void runLater(Phase phase, Runnable task, double delay) {
+        runLater(phase, asSupplier(task), delay);
+    }
+
+    public static <R> Future<R> runLater(Phase phase, Supplier<R> task) {
+        return runLater(phase, task, 0);
+    }
+
+    public static <R> Future<R> runLater(Phase phase, Supplier<R> task, double delay) {
+        return queue(phase).schedule(task, delay);
+    }
+
+    public static <R> Future<R> runWhen(Phase phase, Supplier<R> task, BooleanSupplier requirement) {
+        return queue(phase).add(task, requirement);
+    }
+
+
+
+    private static BooleanSupplier asBooleanSupplier(Runnable task) {
+        return () -> {
+            task.run();
+            return true;
+        };
+    }
+
+    private static Supplier<Object> asSupplier(Runnable task) {
+        return () -> {
+            task.run();
+            return null;
+        };
     }
 
 
@@ -107,6 +422,98 @@ public final class Execution {
     static void init() { }
 
 
+    /**
+     * The tasks of a single phase.
+     */
+    private static final class TaskQueue {
+
+        /**
+         * Tasks with an arbitrary requirement. These have to be polled every
+         * time the tasks are run.
+         */
+        private final Set<ExecutionTask<Object>> tasks = new HashSet<>();
+
+        /**
+         * Tasks that are due at a specific time, ordered by that time. Only
+         * the tasks that are due are touched when the tasks are run, so
+         * pending timers do not cost anything per frame.
+         */
+        private final PriorityQueue<TimedTask> timedTasks = new PriorityQueue<>();
+
+        /**
+         * The due tasks polled from {@link #timedTasks}, reused between runs.
+         */
+        private final List<TimedTask> dueTasks = new ArrayList<>();
+
+        void run() {
+            runTimedTasks();
+            if(!tasks.isEmpty()) runConditionalTasks();
+        }
+
+        private void runTimedTasks() {
+            double time = Time.seconds();
+            TimedTask next;
+            while((next = timedTasks.peek()) != null && next.time <= time)
+                dueTasks.add(timedTasks.poll());
+            if(dueTasks.isEmpty()) return;
+
+            // Rescheduled tasks are only added after all due tasks were polled,
+            // so a repeating task runs at most once per call
+            int i = 0;
+            try {
+                for(; i<dueTasks.size(); i++) {
+                    TimedTask task = dueTasks.get(i);
+                    if(task.run()) schedule(task, task.time + task.delay);
+                }
+            } finally {
+                if(i < dueTasks.size()) {
+                    // A task threw. Repeating tasks keep repeating, and the
+                    // tasks that did not run yet stay due
+                    TimedTask failed = dueTasks.get(i);
+                    if(failed instanceof RepeatingExecutionTask) schedule(failed, failed.time + failed.delay);
+                    for(i++; i<dueTasks.size(); i++) timedTasks.add(dueTasks.get(i));
+                }
+                dueTasks.clear();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void runConditionalTasks() {
+            for(ExecutionTask<Object> task : tasks.toArray(new ExecutionTask[0])) {
+                if(task.result.isCancelled())
+                    tasks.remove(task);
+                else if(task.requirement.getAsBoolean()) {
+                    TaskEvent event = EngineEvents.beginTask(false);
+                    Object value = task.action.get();
+                    EngineEvents.endTask(event);
+                    EngineMetrics.TASKS.increment();
+                    // Removed before completing, so a throwing listener does not make the task run again
+                    tasks.remove(task);
+                    task.result.setValue(value);
+                }
+            }
+        }
+
+        void schedule(TimedTask task, double time) {
+            task.time = time;
+            task.index = taskCount++;
+            timedTasks.add(task);
+        }
+
+        <R> Future<R> schedule(Supplier<R> task, double delay) {
+            DelayedExecutionTask<R> executionTask = new DelayedExecutionTask<>(task);
+            schedule(executionTask, Time.seconds() + delay);
+            return executionTask.result;
+        }
+
+        @SuppressWarnings("unchecked")
+        <R> Future<R> add(Supplier<R> task, BooleanSupplier requirement) {
+            ExecutionTask<R> executionTask = new ExecutionTask<>(task, requirement);
+            tasks.add((ExecutionTask<Object>) executionTask);
+            return executionTask.result;
+        }
+    }
+
     private static final class ExecutionTask<T> {
 
         public final Supplier<T> action;
@@ -119,13 +526,128 @@ public final class Execution {
         }
     }
 
-    private static final class RepeatingExecutionTask {
+    /**
+     * A task that is due at a specific time.
+     */
+    private static abstract class TimedTask implements Comparable<TimedTask> {
+
+        /**
+         * The time at which the task is due.
+         */
+        double time;
+
+        /**
+         * The order in which the task was scheduled.
+         */
+        long index;
+
+        /**
+         * The delay after which the task should be scheduled again if
+         * {@link #run()} returns {@code true}.
+         */
+        final double delay;
+
+        TimedTask(double delay) {
+            this.delay = delay;
+        }
+
+        /**
+         * Runs the task.
+         *
+         * @return Weather the task should be scheduled again
+         */
+        abstract boolean run();
+
+        @Override
+        public int compareTo(TimedTask o) {
+            int cmp = Double.compare(time, o.time);
+            return cmp != 0 ? cmp : Long.compare(index, o.index);
+        }
+    }
+
+    private static final class DelayedExecutionTask<T> extends TimedTask {
+
+        public final Supplier<T> action;
+        public final FutureImpl<T> result = new FutureImpl<>();
+
+        private DelayedExecutionTask(Supplier<T> action) {
+            super(0);
+            this.action = action;
+        }
+
+        @Override
+        boolean run() {
+            // Cancelled tasks are dropped once they are due
+            if(result.isCancelled()) return false;
+            TaskEvent event = EngineEvents.beginTask(false);
+            result.setValue(action.get());
+            EngineEvents.endTask(event);
+            EngineMetrics.TASKS.increment();
+            return false;
+        }
+    }
+
+    private static final class BudgetedJob {
+
+        public final BooleanSupplier step;
+
+        /**
+         * The maximum time the job may take per frame, in nanoseconds.
+         */
+        public final long budget;
+
+        public final FutureImpl<Void> result = new FutureImpl<>();
+
+        private BudgetedJob(BooleanSupplier step, long budget) {
+            this.step = step;
+            this.budget = budget;
+        }
+
+        /**
+         * Runs steps of the job until it is done or the given deadline is
+         * reached.
+         *
+         * @param deadline The {@link System#nanoTime()} after which no more
+         *                 steps should be started
+         * @return Weather the job should be resumed in the next frame
+         */
+        boolean run(long deadline) {
+            if(result.isCancelled()) return false;
+            TaskEvent event = EngineEvents.beginTask(true);
+            try {
+                do {
+                    if(!step.getAsBoolean()) {
+                        result.setValue(null);
+                        return false;
+                    }
+                } while(System.nanoTime() < deadline && !result.isCancelled());
+                return !result.isCancelled();
+            } catch(RuntimeException e) {
+                if(!result.isDone()) result.setException(e);
+                throw e;
+            } finally {
+                EngineEvents.endTask(event);
+                EngineMetrics.TASKS.increment();
+            }
+        }
+    }
+
+    private static final class RepeatingExecutionTask extends TimedTask {
+
         public final BooleanSupplier action;
-        public final BooleanSupplier requirement;
 
-        private RepeatingExecutionTask(BooleanSupplier action, BooleanSupplier requirement) {
+        private RepeatingExecutionTask(BooleanSupplier action, double delay) {
+            super(delay);
             this.action = action;
-            this.requirement = requirement;
+        }
+
+        @Override
+        boolean run() {
+            TaskEvent event = EngineEvents.beginTask(true);
+            boolean repeat = action.getAsBoolean();
+            EngineEvents.endTask(event);
+            EngineMetrics.TASKS.increment();
+            return repeat;
         }
     }
 }
@@ -0,0 +1,229 @@
+package com.github.rccookie.greenfoot.core;
+
+import com.github.rccookie.greenfoot.java.util.concurrent.Future;
+import com.github.rccookie.greenfoot.java.util.concurrent.FutureImpl;
+import com.github.rccookie.util.Arguments;
+
+import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs frames of the current map as fast as possible, with every frame
+ * having the same, fixed length. This is intended for replays, training and
+ * tests: {@link Time#deltaTime()} always returns the given frame length and
+ * {@link Time#seconds()} advances by exactly that length per frame, so the
+ * results do not depend on how fast the machine is.
+ * <p>The frames are run on the calling thread using {@link Map#runFrame()}.
+ * Nothing is rendered and no time is waited between frames. Greenfoot's own
+ * act loop is paused while fast-forwarding and resumed afterwards if it was
+ * running before, and Greenfoot's world lock is held for the whole run.
+ * <p>Fast-forwarding can not be run from within a frame of the current map,
+ * for example from an update method, a scheduled task or a coroutine, and
+ * not while a {@link FramePacer} is driving the map. To fast-forward from
+ * within a frame, use {@link #runAfterFrame(long, double, BooleanSupplier)},
+ * which starts the run on the same thread once the frame has ended. This
+ * also works in online sessions, where no other threads are available.
+ */
+public final class FastForward {
+
+    private FastForward() {
+        throw new UnsupportedOperationException();
+    }
+
+
+
+    /**
+     * Runs the given number of frames of the current map.
+     *
+     * @param frames The number of frames to run
+     * @param frameLength The length of each frame, in seconds
+     * @return The statistics of the run
+     * @throws IllegalStateException If there is no current map, if called
+     *                               from within a frame or if a frame pacer
+     *                               is running
+     */
+    public static Result run(long frames, double frameLength) {
+        return run(frames, frameLength, () -> false);
+    }
+
+    /**
+     * Runs frames of the current map until the given condition is met after
+     * a frame, or the given number of frames was run.
+     *
+     * @param maxFrames The maximum number of frames to run
+     * @param frameLength The length of each frame, in seconds
+     * @param stopCondition Checked after every frame, stops the run if it
+     *                      returns {@code true}
+     * @return The statistics of the run
+     * @throws IllegalStateException If there is no current map, if called
+     *                               from within a frame or if a frame pacer
+     *                               is running
+     */
+    public static Result run(long maxFrames, double frameLength, BooleanSupplier stopCondition) {
+        Arguments.checkRange(frameLength, 0, Double.POSITIVE_INFINITY);
+        Arguments.checkNull(stopCondition);
+        if(maxFrames < 0) throw new IllegalArgumentException("The number of frames must not be negative");
+        Map map = Core.getMap();
+        if(map == null) throw new IllegalStateException("There is no map to fast-forward");
+        if(Map.isInActiveFrame())
+            throw new IllegalStateException("Cannot fast-forward from within a frame, use runAfterFrame() instead");
+        if(FramePacer.getActive() != null)
+            throw new IllegalStateException("Cannot fast-forward while a frame pacer is driving the map");
+
+        boolean wasRunning = Core.isRunning();
+        boolean wasStatic = Time.isStaticFrameLength();
+        double previousFrameLength = Time.getStaticFrameLength();
+        if(wasRunning) Core.pause();
+        Time.setStaticFrameLength(frameLength);
+        Time.useStaticFrameLength(true);
+
+        long frames = 0;
+        long start = System.nanoTime();
+        Lock lock = Core.getRealSession().isJava() ? FramePacer.worldLock() : null;
+        if(lock != null) lock.lock();
+        try {
+            while(frames < maxFrames) {
+                map.runFrame();
+                frames++;
+                if(stopCondition.getAsBoolean()) break;
+            }
+        } finally {
+            if(lock != null) lock.unlock();
+            long realTime = System.nanoTime() - start;
+            Time.useStaticFrameLength(wasStatic);
+            Time.setStaticFrameLength(previousFrameLength);
+            if(wasRunning) Core.run();
+            lastResult = new Result(frames, realTime / 1000000000d, frames * frameLength);
+        }
+        return lastResult;
+    }
+
+    /**
+     * Runs the given number of frames of the current map once the current
+     * frame has ended, or immediately if no frame is running.
+     *
+     * @param frames The number of frames to run
+     * @param frameLength The length of each frame, in seconds
+     * @return A future for the statistics of the run, which fails with the
+     *         exception of the run if it failed. Cancelling it before the
+     *         frame has ended prevents the run
+     */
+    public static Future<Result> runAfterFrame(long frames, double frameLength) {
+        return runAfterFrame(frames, frameLength, () -> false);
+    }
+
+    /**
+     * Runs frames of the current map like
+     * {@link #run(long, double, BooleanSupplier)} once the current frame has
+     * ended, or immediately if no frame is running.
+     *
+     * @param maxFrames The maximum number of frames to run
+     * @param frameLength The length of each frame, in seconds
+     * @param stopCondition Checked after every frame, stops the run if it
+     *                      returns {@code true}
+     * @return A future for the statistics of the run, which fails with the
+     *         exception of the run if it failed. Cancelling it before the
+     *         frame has ended prevents the run
+     */
+    public static Future<Result> runAfterFrame(long maxFrames, double frameLength, BooleanSupplier stopCondition) {
+        Arguments.checkRange(frameLength, 0, Double.POSITIVE_INFINITY);
+        Arguments.checkNull(stopCondition);
+        if(maxFrames < 0) throw new IllegalArgumentException("The number of frames must not be negative");
+        FutureImpl<Result> result = new FutureImpl<>();
+        Map.runAfterFrame(() -> {
+            if(result.isCancelled()) return;
+            Result value;
+            try {
+                value = run(maxFrames, frameLength, stopCondition);
+            } catch(RuntimeException e) {
+                result.setException(e);
+                return;
+            }
+            result.setValue(value);
+        });
+        return result;
+    }
+
+    /**
+     * The result of the last run, or {@code null}.
+     */
+    private static Result lastResult = null;
+
+    /**
+     * Returns the statistics of the last fast-forward run, also if it ended
+     * with an exception.
+     *
+     * @return The result of the last run, or {@code null} if there was none
+     */
+    public static Result getLastResult() {
+        return lastResult;
+    }
+
+
+
+    /**
+     * The statistics of a fast-forward run.
+     */
+    public static final class Result {
+
+        private final long frames;
+        private final double realTime, simulatedTime;
+
+        private Result(long frames, double realTime, double simulatedTime) {
+            this.frames = frames;
+            this.realTime = realTime;
+            this.simulatedTime = simulatedTime;
+        }
+
+        /**
+         * Returns the number of frames run.
+         *
+         * @return The number of frames
+         */
+        public long frames() {
+            return frames;
+        }
+
+        /**
+         * Returns the real time the run took.
+         *
+         * @return The real time, in seconds
+         */
+        public double realTime() {
+            return realTime;
+        }
+
+        /**
+         * Returns the time simulated by the run, the number of frames times
+         * the frame length.
+         *
+         * @return The simulated time, in seconds
+         */
+        public double simulatedTime() {
+            return simulatedTime;
+        }
+
+        /**
+         * Returns the number of frames simulated per real second.
+         *
+         * @return The simulated frames per second
+         */
+        public double framesPerSecond() {
+            return realTime > 0 ? frames / realTime : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Returns how many times faster than real time the run was.
+         *
+         * @return The ratio between simulated and real time
+         */
+        public double speedup() {
+            return realTime > 0 ? simulatedTime / realTime : Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public String toString() {
+            return "FastForward.Result{frames: " + frames + ", real time: " + realTime + "s, simulated frames per second: " + framesPerSecond() + "}";
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.rccookie.greenfoot.core;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Measures the memory allocated by the simulation thread and the garbage
+ * collections per frame. Samples are taken once per frame from the thread
+ * that updates the map, so every value covers exactly one frame. The last
+ * {@link #WINDOW} frames are kept to calculate rolling averages.
+ * <p>This uses the management extensions of the JVM and is therefore only
+ * available in Java sessions.
+ */
+final class FrameAllocations {
+
+    private FrameAllocations() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * The number of frames the rolling averages are calculated over.
+     */
+    static final int WINDOW = 60;
+
+    private static boolean enabled = false;
+
+    private static com.sun.management.ThreadMXBean threadBean = null;
+    private static List<GarbageCollectorMXBean> gcBeans = null;
+
+    /**
+     * The totals at the last sample, or {@code -1} if there was no sample
+     * since tracking was enabled.
+     */
+    private static long lastAllocated = -1, lastGcCount = -1, lastGcMillis = -1;
+
+    /**
+     * The values of the last frame, or {@code -1} if not known yet.
+     */
+    private static long allocated = -1, gcCount = -1, gcMillis = -1;
+
+    /**
+     * The values of the last frames as ring buffers, and their sums.
+     */
+    private static final long[] allocatedWindow = new long[WINDOW], gcCountWindow = new long[WINDOW], gcMillisWindow = new long[WINDOW];
+    private static long allocatedSum, gcCountSum, gcMillisSum;
+    private static int windowIndex, windowSize;
+
+
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the tracking. When enabled, the measured values
+     * start over.
+     *
+     * @return Weather tracking is supported. If not, tracking stays disabled
+     */
+    static boolean setEnabled(boolean enabled) {
+        if(!enabled) {
+            FrameAllocations.enabled = false;
+            return true;
+        }
+        if(FrameAllocations.enabled) return true;
+        if(!Core.getRealSession().isJava()) return false;
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(!(bean instanceof com.sun.management.ThreadMXBean)) return false;
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if(!threadBean.isThreadAllocatedMemorySupported()) return false;
+        if(!threadBean.isThreadAllocatedMemoryEnabled()) threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        FrameAllocations.threadBean = threadBean;
+        gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        lastAllocated = lastGcCount = lastGcMillis = -1;
+        allocated = gcCount = gcMillis = -1;
+        allocatedSum = gcCountSum = gcMillisSum = 0;
+        windowIndex = windowSize = 0;
+        FrameAllocations.enabled = true;
+        return true;
+    }
+
+    /**
+     * Takes a sample and calculates the values of the frame that just ended.
+     * Has to be called once per frame from the simulation thread.
+     */
+    static void update() {
+        if(!enabled) return;
+
+        long totalAllocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long totalGcCount = 0, totalGcMillis = 0;
+        for(GarbageCollectorMXBean gcBean : gcBeans) {
+            totalGcCount += Math.max(0, gcBean.getCollectionCount());
+            totalGcMillis += Math.max(0, gcBean.getCollectionTime());
+        }
+
+        if(lastAllocated != -1) {
+            allocated = totalAllocated - lastAllocated;
+            gcCount = totalGcCount - lastGcCount;
+            gcMillis = totalGcMillis - lastGcMillis;
+
+            if(windowSize == WINDOW) {
+                allocatedSum -= allocatedWindow[windowIndex];
+                gcCountSum -= gcCountWindow[windowIndex];
+                gcMillisSum -= gcMillisWindow[windowIndex];
+            }
+            else windowSize++;
+            allocatedSum += allocatedWindow[windowIndex] = allocated;
+            gcCountSum += gcCountWindow[windowIndex] = gcCount;
+            gcMillisSum += gcMillisWindow[windowIndex] = gcMillis;
+            windowIndex = (windowIndex + 1) % WINDOW;
+        }
+        lastAllocated = totalAllocated;
+        lastGcCount = totalGcCount;
+        lastGcMillis = totalGcMillis;
+    }
+
+
+
+    static long allocatedBytes() {
+        return enabled ? allocated : -1;
+    }
+
+    static long gcCount() {
+        return enabled ? gcCount : -1;
+    }
+
+    static double gcTime() {
+        return enabled && gcMillis != -1 ? gcMillis / 1000d : Double.NaN;
+    }
+
+    static double averageAllocatedBytes() {
+        return enabled && windowSize != 0 ? (double) allocatedSum / windowSize : Double.NaN;
+    }
+
+    static double averageGcCount() {
+        return enabled && windowSize != 0 ? (double) gcCountSum / windowSize : Double.NaN;
+    }
+
+    static double averageGcTime() {
+        return enabled && windowSize != 0 ? gcMillisSum / 1000d / windowSize : Double.NaN;
+    }
+}
@@ -0,0 +1,329 @@
+package com.github.rccookie.greenfoot.core;
+
+import com.github.rccookie.greenfoot.core.metrics.Histogram;
+import com.github.rccookie.greenfoot.core.metrics.Metrics;
+import com.github.rccookie.util.Arguments;
+import com.github.rccookie.util.Console;
+import greenfoot.core.WorldHandler;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the current map at an exact frame rate, independent of Greenfoot's
+ * simulation speed. While running, Greenfoot's own act loop is paused and
+ * the pacer calls {@link Map#runFrame()} and {@link Map#render()} on its own
+ * thread at fixed intervals.
+ * <p>Only one pacer drives the map at a time, and only while Greenfoot's act
+ * loop is not running: starting a pacer stops the active one, and starting
+ * Greenfoot's loop again, using {@link Core#setRun(boolean)} or the
+ * controls of Greenfoot, stops the active pacer. Each frame is run while
+ * holding Greenfoot's world lock, like Greenfoot does for its own frames.
+ * <p>To hit the start of each frame precisely, the pacer sleeps until shortly
+ * before the deadline and spins for the remaining time, measured with
+ * {@link System#nanoTime()}. If a frame takes longer than the interval, the
+ * following frame starts immediately; if the pacer falls behind by more than
+ * a whole frame, the missed frames are dropped rather than run in a burst.
+ * <p>The jitter, the difference between the planned and the actual start of
+ * each frame, is measured and recorded in the {@code pacer.jitter} histogram
+ * in milliseconds.
+ * <p>This uses a thread and is therefore only available in Java sessions.
+ */
+public final class FramePacer {
+
+    /**
+     * The time before a deadline in nanoseconds from which on the pacer spins
+     * instead of sleeping. Sleeping is not precise enough below about a
+     * millisecond on most systems.
+     */
+    private static final long SPIN_THRESHOLD = 1500000;
+
+    /**
+     * The number of frames the average jitter is calculated over.
+     */
+    private static final int JITTER_WINDOW = 120;
+
+    private static final Histogram JITTER = Metrics.histogram("pacer.jitter");
+
+    /**
+     * The pacer currently driving the map, or {@code null}. Only written
+     * while holding the lock on this class.
+     */
+    private static volatile FramePacer active = null;
+
+
+
+    /**
+     * The length of a frame in nanoseconds.
+     */
+    private volatile long interval;
+
+    /**
+     * Weather the map gets rendered after each frame.
+     */
+    private volatile boolean rendering = true;
+
+    private volatile boolean running = false;
+
+    /**
+     * The thread driving the map. A thread only keeps running while it is
+     * the current one, so restarting the pacer never drives the map twice.
+     */
+    private volatile Thread thread = null;
+
+    /**
+     * The jitter of the last frames in nanoseconds, as ring buffer.
+     */
+    private final long[] jitter = new long[JITTER_WINDOW];
+    private int jitterIndex = 0, jitterCount = 0;
+
+
+
+    /**
+     * Creates a new frame pacer targeting the given frame rate. The pacer
+     * has to be started using {@link #start()}.
+     *
+     * @param fps The frame rate to target
+     */
+    public FramePacer(double fps) {
+        setFps(fps);
+    }
+
+
+
+    /**
+     * Starts driving the current map on a new thread and pauses Greenfoot's
+     * own act loop. A different pacer that is currently running gets stopped.
+     * If this pacer is already running this has no effect.
+     *
+     * @throws UnsupportedOperationException If the session is not a java
+     *                                       session
+     */
+    public void start() {
+        if(!Core.getRealSession().isJava())
+            throw new UnsupportedOperationException("The frame pacer is only supported in java sessions");
+
+        FramePacer previous;
+        synchronized(this) {
+            if(running) return;
+
+            Core.pause();
+            synchronized(FramePacer.class) {
+                previous = active;
+                active = this;
+            }
+            running = true;
+            thread = new Thread(this::run, "Greenfoot-FramePacer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        // Not stopped while holding the lock on this pacer to avoid deadlocks
+        // between two pacers started at the same time
+        if(previous != null && previous != this) previous.stop();
+    }
+
+    /**
+     * Stops the pacer after the current frame. Greenfoot's act loop stays
+     * paused.
+     */
+    public synchronized void stop() {
+        synchronized(FramePacer.class) {
+            if(active == this) active = null;
+        }
+        running = false;
+        Thread thread = this.thread;
+        this.thread = null;
+        if(thread != null) LockSupport.unpark(thread);
+    }
+
+    /**
+     * Returns the pacer currently driving the map.
+     *
+     * @return The active pacer, or {@code null}
+     */
+    static FramePacer getActive() {
+        return active;
+    }
+
+    /**
+     * Stops the pacer currently driving the map, if any. Called when
+     * Greenfoot's own act loop runs or is started.
+     */
+    static void stopActive() {
+        FramePacer pacer = active;
+        if(pacer != null) pacer.stop();
+    }
+
+    /**
+     * Returns weather the pacer is currently driving the map.
+     *
+     * @return Weather the pacer is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the frame rate targeted.
+     *
+     * @return The target frame rate
+     */
+    public double getFps() {
+        return 1000000000d / interval;
+    }
+
+    /**
+     * Sets the frame rate to target. Takes effect from the next frame on.
+     *
+     * @param fps The frame rate to target
+     */
+    public void setFps(double fps) {
+        Arguments.checkRange(fps, 0.01, Double.POSITIVE_INFINITY);
+        interval = (long) (1000000000d / fps);
+    }
+
+    /**
+     * Returns weather the map gets rendered after each frame.
+     *
+     * @return Weather the pacer renders
+     */
+    public boolean isRendering() {
+        return rendering;
+    }
+
+    /**
+     * Sets weather the map should be rendered after each frame. Disabling
+     * this is useful for headless sessions.
+     *
+     * @param rendering Weather the pacer should render
+     */
+    public void setRendering(boolean rendering) {
+        this.rendering = rendering;
+    }
+
+    /**
+     * Returns the jitter of the last frame, the absolute difference between
+     * the planned and the actual start of the frame.
+     *
+     * @return The jitter of the last frame, in seconds
+     */
+    public synchronized double getJitter() {
+        if(jitterCount == 0) return 0;
+        return jitter[(jitterIndex + JITTER_WINDOW - 1) % JITTER_WINDOW] / 1000000000d;
+    }
+
+    /**
+     * Returns the average jitter over the last 120 frames.
+     *
+     * @return The average jitter, in seconds
+     */
+    public synchronized double getAverageJitter() {
+        if(jitterCount == 0) return 0;
+        long sum = 0;
+        for(int i=0; i<jitterCount; i++) sum += jitter[i];
+        return sum / 1000000000d / jitterCount;
+    }
+
+    /**
+     * Returns the highest jitter over the last 120 frames.
+     *
+     * @return The maximum jitter, in seconds
+     */
+    public synchronized double getMaxJitter() {
+        long max = 0;
+        for(int i=0; i<jitterCount; i++) max = Math.max(max, jitter[i]);
+        return max / 1000000000d;
+    }
+
+
+
+    private void run() {
+        try {
+            runFrames();
+        } finally {
+            // Also reached if an error kills the thread, which must not leave the pacer registered as active
+            synchronized(this) {
+                if(isCurrent()) stop();
+            }
+        }
+    }
+
+    private void runFrames() {
+        long next = System.nanoTime();
+        while(isCurrent()) {
+            long start = System.nanoTime();
+            recordJitter(Math.abs(start - next));
+
+            Map map = Core.getMap();
+            if(map != null) {
+                try {
+                    if(!runFrame(map)) return;
+                    if(rendering) map.render();
+                } catch(RuntimeException e) {
+                    Console.error("Exception in frame, stopping frame pacer");
+                    e.printStackTrace();
+                    return;
+                }
+            }
+
+            long interval = this.interval;
+            next += interval;
+            long now = System.nanoTime();
+            if(now - next > interval) next = now;
+            waitUntil(next);
+        }
+    }
+
+    /**
+     * Runs a single frame of the given map while holding Greenfoot's world
+     * lock.
+     *
+     * @return Weather the frame was run, {@code false} if the pacer was
+     *         stopped while waiting for the lock
+     */
+    private boolean runFrame(Map map) {
+        Lock lock = worldLock();
+        if(lock != null) lock.lock();
+        try {
+            if(!isCurrent()) return false;
+            map.runFrame();
+            return true;
+        } finally {
+            if(lock != null) lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the lock Greenfoot holds while running a frame.
+     *
+     * @return The write lock of Greenfoot's world, or {@code null} if
+     *         Greenfoot is not initialized
+     */
+    static Lock worldLock() {
+        WorldHandler worldHandler = WorldHandler.getInstance();
+        return worldHandler != null ? worldHandler.getWorldLock().writeLock() : null;
+    }
+
+    private boolean isCurrent() {
+        return thread == Thread.currentThread();
+    }
+
+    private synchronized void recordJitter(long nanos) {
+        jitter[jitterIndex] = nanos;
+        jitterIndex = (jitterIndex + 1) % JITTER_WINDOW;
+        if(jitterCount < JITTER_WINDOW) jitterCount++;
+        JITTER.record(nanos / 1000000d);
+    }
+
+    /**
+     * Waits until {@link System#nanoTime()} reaches the given deadline by
+     * sleeping for most of the time and spinning for the rest.
+     */
+    private void waitUntil(long deadline) {
+        long remaining;
+        while(isCurrent() && (remaining = deadline - System.nanoTime()) > SPIN_THRESHOLD)
+            LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+        while(isCurrent() && deadline - System.nanoTime() > 0)
+            Thread.onSpinWait();
+    }
+}
@@ -3,6 +3,7 @@ package com.github.rccookie.greenfoot.core;
 import com.github.rccookie.data.json.JsonSerializable;
 import com.github.rccookie.geometry.Vector;
 import com.github.rccookie.geometry.Vector2D;
+import com.github.rccookie.greenfoot.core.jfr.EngineEvents;
 import com.github.rccookie.greenfoot.java.util.Optional;
 import com.github.rccookie.util.Arguments;
 import greenfoot.Actor;
@@ -123,6 +124,17 @@ public class GameObject {
      */
     private Image image;
 
+    /**
+     * The cached bounds of this object, see {@link #getBoundingRadius()}.
+     */
+    private double boundingRadius, boundsWidth, boundsHeight;
+
+    /**
+     * The image size and rotation the cached bounds were calculated for.
+     */
+    private int boundsImageWidth = -1, boundsImageHeight = -1;
+    private double boundsRotation = Double.NaN;
+
     /**
      * The underlying support actor that will actually be displayed.
      */
@@ -303,6 +315,8 @@ public class GameObject {
             m.world.removeObject(actor);
             m.objects.remove(this);
             map = null;
+            m.removed(this);
+            EngineEvents.objectRemoved(this, m);
             for(Iterator<Consumer<Map>> i = onRemove.iterator(); i.hasNext();)
                 i.next().accept(m);
         });
@@ -498,6 +512,7 @@ public class GameObject {
      * Inform the transform that it has been modified.
      */
     protected void transformModified() {
+        if(map != null) map.colliderModified(this);
         /*if(Core.isRunning())
             transformModified = true;
         else*/ updateActor(); // TODO: Check performance penalty
@@ -531,6 +546,7 @@ public class GameObject {
      */
     public void setImage(Image image) {
         this.image = image;
+        if(map != null) map.colliderModified(this);
         actor.superSetImage(Image.asGImage(image));
     }
 
@@ -580,6 +596,60 @@ public class GameObject {
         return image != null ? image.getSize() : Vector.of();
     }
 
+    /**
+     * Returns the radius of the smallest circle around the location of this
+     * object that contains its image, independent of the rotation. The value
+     * is cached and only recalculated when the size of the image changes.
+     *
+     * @return The bounding radius of this object
+     */
+    public double getBoundingRadius() {
+        updateBounds();
+        return boundingRadius;
+    }
+
+    /**
+     * Returns the width of the axis aligned bounding box of this object's
+     * rotated image, centered at its location. The value is cached and only
+     * recalculated when the size of the image or the rotation changes.
+     *
+     * @return The width of the bounding box
+     */
+    public double getBoundsWidth() {
+        updateBounds();
+        return boundsWidth;
+    }
+
+    /**
+     * Returns the height of the axis aligned bounding box of this object's
+     * rotated image, centered at its location. The value is cached and only
+     * recalculated when the size of the image or the rotation changes.
+     *
+     * @return The height of the bounding box
+     */
+    public double getBoundsHeight() {
+        updateBounds();
+        return boundsHeight;
+    }
+
+    /**
+     * Recalculates the cached bounds if the image size or rotation changed
+     * since they were calculated. Images can be scaled without this object
+     * being informed, so the size is compared on every access.
+     */
+    private void updateBounds() {
+        int width = getWidth(), height = getHeight();
+        if(width == boundsImageWidth && height == boundsImageHeight && rotation == boundsRotation) return;
+        if(width != boundsImageWidth || height != boundsImageHeight)
+            boundingRadius = 0.5 * Math.sqrt((double) width * width + (double) height * height);
+        double radians = Math.toRadians(rotation), sin = Math.abs(Math.sin(radians)), cos = Math.abs(Math.cos(radians));
+        boundsWidth = width * cos + height * sin;
+        boundsHeight = width * sin + height * cos;
+        boundsImageWidth = width;
+        boundsImageHeight = height;
+        boundsRotation = rotation;
+    }
+
 
 
 
@@ -813,7 +883,7 @@ public class GameObject {
                 .stream()
                 .map(SupportActor::gameObject)
                 .filter(cls::isInstance)
-                .filter(o -> o != this && Vector.between(location(), o.location()).sqrAbs() <= sqrDist)
+                .filter(o -> o != this && Vector.sqrDistance(location(), o.location()) <= sqrDist)
                 .map(o -> (A)o)
                 .findAny().orElse(null));
     }
@@ -853,7 +923,7 @@ public class GameObject {
                 .stream()
                 .map(SupportActor::gameObject)
                 .filter(cls::isInstance)
-                .filter(o -> o != this && Vector.between(location(), o.location()).sqrAbs() <= sqrDist)
+                .filter(o -> o != this && Vector.sqrDistance(location(), o.location()) <= sqrDist)
                 .map(o -> (A)o)
                 .collect(Collectors.toSet());
     }
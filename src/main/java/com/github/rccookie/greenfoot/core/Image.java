@@ -104,6 +104,13 @@ public class Image implements Cloneable {
      */
     private final SupportGreenfootImage gImage;
 
+    /**
+     * Collision masks of this image, indexed by rotation bucket. Created on
+     * demand by {@link CollisionMask#of(Image, double)} and dropped whenever
+     * the image gets modified.
+     */
+    CollisionMask[] collisionMasks = null;
+
     /**
      * Creates a new transparent image of the given size.
      *
@@ -313,6 +320,7 @@ public class Image implements Cloneable {
     }
 
     public void setColorAt(int x, int y, Color color) {
+        modified();
         getGImage().superSetColorAt(x, y, Color.asGColor(color));
     }
 
@@ -325,34 +333,42 @@ public class Image implements Cloneable {
     }
 
     public void clear() {
+        modified();
         getGImage().superClear();
     }
 
     public void drawImage(Image image, int x, int y) {
+        modified();
         getGImage().superDrawImage(Image.asGImage(image), x, y);
     }
 
     public void drawLine(int x1, int y1, int x2, int y2) {
+        modified();
         getGImage().superDrawLine(x1, y1, x2, y2);
     }
 
     public void drawOval(int x, int y, int width, int height) {
+        modified();
         getGImage().superDrawOval(x, y, width, height);
     }
 
     public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        modified();
         getGImage().superDrawPolygon(xPoints, yPoints, nPoints);
     }
 
     public void drawRect(int x, int y, int width, int height) {
+        modified();
         getGImage().superDrawRect(x, y, width, height);
     }
 
     public void drawShape(Shape shape) {
+        modified();
         getGImage().superDrawShape(shape);
     }
 
     public void drawString(String string, int x, int y) {
+        modified();
         getGImage().superDrawString(string, x, y);
     }
 
@@ -365,18 +381,22 @@ public class Image implements Cloneable {
     }
 
     public void fill() {
+        modified();
         getGImage().superFill();
     }
 
     public void fillOval(int x, int y, int width, int height) {
+        modified();
         getGImage().superFillOval(x, y, width, height);
     }
 
     public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        modified();
         getGImage().superFillPolygon(xPoints, yPoints, nPoints);
     }
 
     public void fillRect(int x, int y, int width, int height) {
+        modified();
         getGImage().superFillRect(x, y, width, height);
     }
 
@@ -406,18 +426,22 @@ public class Image implements Cloneable {
     }
 
     public void mirrorHorizontally() {
+        modified();
         getGImage().superMirrorHorizontally();
     }
 
     public void mirrorVertically() {
+        modified();
         getGImage().superMirrorVertically();
     }
 
     public void rotate(int degrees) {
+        modified();
         getGImage().superRotate(degrees);
     }
 
     public void scale(int width, int height) {
+        modified();
         getGImage().superScale(width, height);
     }
 
@@ -426,6 +450,7 @@ public class Image implements Cloneable {
     }
 
     public void setTransparency(int t) {
+        modified();
         getGImage().superSetTransparency(t);
     }
 
@@ -433,6 +458,37 @@ public class Image implements Cloneable {
         return gImage;
     }
 
+    /**
+     * Returns the argb values of all pixels of this image, row by row. Online
+     * only the alpha channel is filled in. Unlike {@link #getAwtImage()} this
+     * does not cause a copy-on-demand image to actually be copied.
+     *
+     * @return The pixels of this image
+     */
+    int[] getPixels() {
+        return readPixels(getGImage());
+    }
+
+    private static int[] readPixels(SupportGreenfootImage gImage) {
+        int width = gImage.superGetWidth(), height = gImage.superGetHeight();
+        int[] pixels = new int[width * height];
+        if(Core.getRealSession().isJava())
+            gImage.superGetAwtImage().getRGB(0, 0, width, height, pixels, 0, width);
+        else {
+            // BufferedImage is not available online
+            for(int y = 0; y < height; y++) for(int x = 0; x < width; x++)
+                pixels[y * width + x] = gImage.superGetColorAt(x, y).getAlpha() << 24;
+        }
+        return pixels;
+    }
+
+    /**
+     * Called before any operation that may change the pixels of this image.
+     */
+    private void modified() {
+        collisionMasks = null;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + " (" + getWidth() + "x" + getHeight() + ")";
@@ -545,6 +601,11 @@ public class Image implements Cloneable {
         public Font getFont() {
             return Font.of(gImage.superGetFont());
         }
+
+        @Override
+        int[] getPixels() {
+            return readPixels(gImage);
+        }
     }
 
     private class SupportGreenfootImage extends GreenfootImage {
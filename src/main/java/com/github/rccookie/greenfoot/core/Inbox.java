@@ -0,0 +1,70 @@
+package com.github.rccookie.greenfoot.core;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free multi-producer single-consumer queue of tasks. Any thread may
+ * {@link #post(Runnable)} tasks, but only a single thread, the simulation
+ * thread, may {@link #poll()} them.
+ * <p>Producers only swap the tail of a linked list of nodes and then link
+ * the previous tail to the new node, so posting never blocks or retries.
+ * Between these two steps the consumer can not see the new node or any node
+ * posted after it yet; such tasks are returned by a later call of
+ * {@link #poll()}.
+ */
+final class Inbox {
+
+    /**
+     * The last node posted. Written by the producers.
+     */
+    private final AtomicReference<Node> tail;
+
+    /**
+     * The node before the next task to poll. Only accessed by the consumer.
+     */
+    private Node head;
+
+    Inbox() {
+        Node stub = new Node(null);
+        head = stub;
+        tail = new AtomicReference<>(stub);
+    }
+
+
+
+    /**
+     * Adds the given task to the queue. May be called from any thread.
+     */
+    void post(Runnable task) {
+        Node node = new Node(task);
+        tail.getAndSet(node).next = node;
+    }
+
+    /**
+     * Removes the next task from the queue. Must only be called from the
+     * consuming thread.
+     *
+     * @return The next task, or {@code null} if no task is visible yet
+     */
+    Runnable poll() {
+        Node next = head.next;
+        if(next == null) return null;
+        head = next;
+        Runnable task = next.task;
+        next.task = null;
+        return task;
+    }
+
+
+
+    private static final class Node {
+
+        Runnable task;
+
+        volatile Node next = null;
+
+        Node(Runnable task) {
+            this.task = task;
+        }
+    }
+}
@@ -1,6 +1,14 @@
 package com.github.rccookie.greenfoot.core;
 
 import com.github.rccookie.geometry.Vector;
+import com.github.rccookie.greenfoot.core.components.Collider;
+import com.github.rccookie.greenfoot.core.components.ColliderGrid;
+import com.github.rccookie.greenfoot.core.components.ColliderTree;
+import com.github.rccookie.greenfoot.core.jfr.EngineEvents;
+import com.github.rccookie.greenfoot.core.jfr.FrameEvent;
+import com.github.rccookie.greenfoot.core.jfr.PhaseEvent;
+import com.github.rccookie.greenfoot.core.metrics.EngineMetrics;
+import com.github.rccookie.greenfoot.core.raycast.BorderSnapshot;
 import com.github.rccookie.greenfoot.java.util.Optional;
 import com.github.rccookie.util.Arguments;
 import com.github.rccookie.util.Console;
@@ -75,6 +83,71 @@ public abstract class Map extends GameObject {
      */
     final Set<GameObject> objects = new HashSet<>();
 
+    /**
+     * All objects on this map with a static collider. Built on demand and
+     * dropped by {@link #invalidateStaticColliders()}.
+     */
+    private ColliderTree staticColliders = null;
+
+    /**
+     * All objects on this map without a static collider. Only up-to-date
+     * while {@link #staticColliders} is built.
+     */
+    private final Set<GameObject> dynamicObjects = new HashSet<>();
+
+    /**
+     * All dynamic objects with a collider, as they were when the tree was
+     * built. Rebuilt at most once per frame unless many objects changed.
+     */
+    private ColliderTree dynamicColliders = null;
+
+    /**
+     * The frame in which {@link #dynamicColliders} was built.
+     */
+    private long dynamicCollidersFrame = -1;
+
+    /**
+     * Dynamic objects whose collider changed since {@link #dynamicColliders}
+     * was built, or that were added afterwards. Their entries in the tree, if
+     * any, are outdated.
+     */
+    private final Set<GameObject> modifiedColliders = new HashSet<>();
+
+    /**
+     * Unmodifiable view of {@link #modifiedColliders}, created once as it is
+     * requested by every raycast.
+     */
+    private final Set<GameObject> modifiedCollidersView = Collections.unmodifiableSet(modifiedColliders);
+
+    /**
+     * A grid over all objects with a static collider, built together with
+     * {@link #staticColliders}.
+     */
+    private ColliderGrid staticColliderGrid = null;
+
+    /**
+     * Weather a border snapshot should be captured at the end of every frame.
+     */
+    private boolean publishBorderSnapshots = false;
+
+    /**
+     * The most recently published border snapshot.
+     */
+    private volatile BorderSnapshot borderSnapshot = null;
+
+    /**
+     * Weather a frame of the active map is currently being run. These frames
+     * must not be nested because they run the shared task queues and global
+     * updates. Frames of other maps do not touch that state and may be run
+     * from anywhere.
+     */
+    private static volatile boolean inActiveFrame = false;
+
+    /**
+     * Actions to run once the current frame of the active map has ended.
+     */
+    private static final List<Runnable> AFTER_FRAME_ACTIONS = new ArrayList<>();
+
 
 
     /**
@@ -163,6 +236,12 @@ public abstract class Map extends GameObject {
         world.addObject(object.actor, (int)(location.x() + 0.5), (int)(location.y() + 0.5));
         object.map = this;
         objects.add(object);
+        if(staticColliders != null) {
+            if(hasStaticCollider(object)) invalidateStaticColliders();
+            else dynamicObjects.add(object);
+        }
+        colliderModified(object);
+        EngineEvents.objectAdded(object, this);
         Console.mapDebug("Added object", object);
         Console.printStackTrace("debug");
         object.location().set(location);
@@ -225,6 +304,16 @@ public abstract class Map extends GameObject {
         for(GameObject object : objects) object.remove();
     }
 
+    /**
+     * Called after the given object was removed from this map.
+     */
+    void removed(GameObject object) {
+        modifiedColliders.remove(object);
+        if(staticColliders == null) return;
+        if(hasStaticCollider(object)) invalidateStaticColliders();
+        else dynamicObjects.remove(object);
+    }
+
 
 
     public void setPaintOrder(Class<?>... order) {
@@ -499,6 +588,163 @@ public abstract class Map extends GameObject {
 
 
 
+    /**
+     * Returns a tree over all objects on this map that have a static collider.
+     * The tree is built once and reused until {@link #invalidateStaticColliders()}
+     * gets called, which happens automatically when a static object is added
+     * or removed, or when a collider changes its static state.
+     *
+     * @return The static colliders of this map
+     * @see Collider#setStatic(boolean)
+     */
+    public ColliderTree getStaticColliders() {
+        if(staticColliders == null) {
+            List<GameObject> staticObjects = new ArrayList<>();
+            dynamicObjects.clear();
+            for(GameObject object : objects) {
+                if(hasStaticCollider(object)) staticObjects.add(object);
+                else dynamicObjects.add(object);
+            }
+            staticColliders = ColliderTree.build(staticObjects);
+        }
+        return staticColliders;
+    }
+
+    /**
+     * Returns all objects on this map that do not have a static collider.
+     *
+     * @return All non-static objects on this map
+     */
+    public Set<GameObject> getDynamicObjects() {
+        getStaticColliders();
+        return Collections.unmodifiableSet(dynamicObjects);
+    }
+
+    /**
+     * Marks the static colliders of this map as outdated, so they will be
+     * rebuilt on the next query. This has to be called whenever an object with
+     * a static collider was moved, rotated or resized.
+     */
+    public void invalidateStaticColliders() {
+        staticColliders = null;
+        dynamicColliders = null;
+        staticColliderGrid = null;
+    }
+
+    /**
+     * Returns a tree over all objects on this map that have a collider which
+     * is not static. The tree is shared between all queries and rebuilt at
+     * most once per frame, or earlier if a large part of the objects changed.
+     * Objects whose collider changed after the tree was built are not removed
+     * from it but listed in {@link #getModifiedColliders()} instead, and have
+     * to be checked separately. Entries of objects that were removed from
+     * this map in the meantime may also still be present.
+     *
+     * @return The dynamic colliders of this map
+     */
+    public ColliderTree getDynamicColliders() {
+        getStaticColliders();
+        if(dynamicColliders == null || (!modifiedColliders.isEmpty()
+                && (dynamicCollidersFrame != Time.frameIndex() || modifiedColliders.size() > dynamicColliders.size() / 4))) {
+            modifiedColliders.clear();
+            dynamicColliders = ColliderTree.build(dynamicObjects);
+            dynamicCollidersFrame = Time.frameIndex();
+        }
+        return dynamicColliders;
+    }
+
+    /**
+     * Returns all objects on this map whose entry in
+     * {@link #getDynamicColliders()} is missing or outdated.
+     *
+     * @return The objects whose collider changed since the dynamic colliders
+     *         were built
+     */
+    public Set<GameObject> getModifiedColliders() {
+        getDynamicColliders();
+        return modifiedCollidersView;
+    }
+
+    /**
+     * Returns a grid over all objects on this map that have a static
+     * collider, with one grid cell per map cell. Like
+     * {@link #getStaticColliders()}, the grid is built once and reused until
+     * {@link #invalidateStaticColliders()} gets called. Dynamic colliders are
+     * not part of the grid and have to be checked using
+     * {@link #getDynamicColliders()}.
+     * <p>The grid is meant for tile maps with a large cell size, where the
+     * static objects are aligned to the cells. The cells are measured in map
+     * cells like the locations of the objects, so only colliders whose
+     * bounds are given in cells, for example box colliders with an explicit
+     * size, cover a single cell each. Colliders sized by the image in pixels,
+     * like the default collider, cover about as many cells as the image has
+     * pixels, which makes the grid slow on maps with a cell size above 1.
+     *
+     * @return A grid over the static colliders of this map
+     */
+    public ColliderGrid getStaticColliderGrid() {
+        if(staticColliderGrid == null) {
+            List<GameObject> colliders = new ArrayList<>();
+            getStaticColliders().forEach(colliders::add);
+            staticColliderGrid = ColliderGrid.build(colliders, width, height);
+        }
+        return staticColliderGrid;
+    }
+
+    /**
+     * Returns weather this map publishes a border snapshot every frame.
+     *
+     * @return Weather border snapshots get published
+     * @see #setPublishBorderSnapshots(boolean)
+     */
+    public boolean isPublishBorderSnapshots() {
+        return publishBorderSnapshots;
+    }
+
+    /**
+     * Sets weather this map should capture the borders of all its colliders
+     * at the end of every frame, after all objects were updated. The most
+     * recent snapshot is available from {@link #getBorderSnapshot()} and
+     * can be used by any number of threads for raycasts without locks, while
+     * this map keeps updating its objects.
+     *
+     * @param publishBorderSnapshots Weather to publish border snapshots
+     */
+    public void setPublishBorderSnapshots(boolean publishBorderSnapshots) {
+        this.publishBorderSnapshots = publishBorderSnapshots;
+        if(!publishBorderSnapshots) borderSnapshot = null;
+    }
+
+    /**
+     * Returns the most recently published border snapshot of this map. This
+     * method may be called from any thread.
+     *
+     * @return The latest border snapshot, or {@code null} if none was
+     *         published yet
+     * @see #setPublishBorderSnapshots(boolean)
+     */
+    public BorderSnapshot getBorderSnapshot() {
+        return borderSnapshot;
+    }
+
+    /**
+     * Informs this map that the collider of the given object moved or changed
+     * its shape. This is done automatically whenever an object gets moved,
+     * rotated or gets a new image.
+     *
+     * @param object The object whose collider changed
+     */
+    public void colliderModified(GameObject object) {
+        if(dynamicColliders != null && object.map == this) modifiedColliders.add(object);
+    }
+
+    private static boolean hasStaticCollider(GameObject object) {
+        Collider collider = object.getComponent(Collider.class);
+        return collider != null && collider.isStatic();
+    }
+
+
+
     /**
      * Returns all objects from this map and itself in the order they should be updated in.
      *
@@ -512,22 +758,84 @@ public abstract class Map extends GameObject {
      * Called whenever {@link World#act()} is called on the underlying map.
      */
     private void onAct() {
-        RuntimeException e = null;
+        if(!isActiveMap()) {
+            runPhases();
+            return;
+        }
+        if(inActiveFrame) throw new IllegalStateException("Cannot run a frame of the active map from within another one");
+        inActiveFrame = true;
+        try {
+            runPhases();
+        } finally {
+            inActiveFrame = false;
+            runAfterFrameActions();
+        }
+    }
+
+    /**
+     * Runs and removes the actions registered using
+     * {@link #runAfterFrame(Runnable)}. Actions registered by these actions
+     * are run right away, as no frame is running anymore.
+     */
+    private static void runAfterFrameActions() {
+        Runnable[] actions;
+        synchronized(AFTER_FRAME_ACTIONS) {
+            if(AFTER_FRAME_ACTIONS.isEmpty()) return;
+            actions = AFTER_FRAME_ACTIONS.toArray(new Runnable[0]);
+            AFTER_FRAME_ACTIONS.clear();
+        }
+        for(Runnable action : actions) action.run();
+    }
 
-        if(isActiveMap()) e = Core.earlyGlobalUpdate();
+    /**
+     * Runs all phases of a single frame.
+     */
+    private void runPhases() {
+        RuntimeException e = null;
+        long frameStart = System.nanoTime();
+        FrameEvent frameEvent = EngineEvents.beginFrame(this);
+
+        PhaseEvent phase = EngineEvents.beginPhase(this, "afterRenderTasks");
+        if(isActiveMap()) e = Execution.runTasks(Execution.Phase.AFTER_RENDER, null);
+        phase = EngineEvents.nextPhase(phase, this, "earlyGlobalUpdate");
+        if(isActiveMap()) {
+            RuntimeException early = Core.earlyGlobalUpdate();
+            if(e == null) e = early;
+            else if(early != null) e.addSuppressed(early);
+        }
 
         List<? extends GameObject> updateTargets = getInUpdateOrder();
+        phase = EngineEvents.nextPhase(phase, this, "earlyInternalUpdate");
         for(GameObject updateTarget : updateTargets) e = runEarlyInternalUpdate(updateTarget, e);
+        phase = EngineEvents.nextPhase(phase, this, "earlyUpdate");
         for(GameObject updateTarget : updateTargets) e = runEarlyUpdate(updateTarget, e);
+        phase = EngineEvents.nextPhase(phase, this, "internalUpdate");
         for(GameObject updateTarget : updateTargets) e = runInternalUpdate(updateTarget, e);
+        phase = EngineEvents.nextPhase(phase, this, "update");
         for(GameObject updateTarget : updateTargets) e = runUpdate(updateTarget, e);
+        if(isActiveMap()) {
+            phase = EngineEvents.nextPhase(phase, this, "updateTasks");
+            e = Execution.runTasks(Execution.Phase.UPDATE, e);
+        }
+        phase = EngineEvents.nextPhase(phase, this, "lateInternalUpdate");
         for(GameObject updateTarget : updateTargets) e = runLateInternalUpdate(updateTarget, e);
+        phase = EngineEvents.nextPhase(phase, this, "lateUpdate");
         for(GameObject updateTarget : updateTargets) e = runLateUpdate(updateTarget, e);
+        phase = EngineEvents.nextPhase(phase, this, "veryLateInternalUpdate");
         for(GameObject updateTarget : updateTargets) e = runVeryLateInternalUpdate(updateTarget, e);
+        phase = EngineEvents.nextPhase(phase, this, "transformUpdate");
         for(GameObject updateTarget : updateTargets) updateTarget.ensureTransformUpToDate();
+        if(publishBorderSnapshots) {
+            phase = EngineEvents.nextPhase(phase, this, "borderSnapshot");
+            borderSnapshot = BorderSnapshot.capture(this);
+        }
 
+        phase = EngineEvents.nextPhase(phase, this, "lateGlobalUpdate");
         if(isActiveMap()) e = Core.lateGlobalUpdate(e);
+        EngineEvents.endPhase(phase);
 
+        EngineEvents.endFrame(frameEvent, objects.size());
+        EngineMetrics.frameEnded(System.nanoTime() - frameStart);
         if(e != null) throw e;
     }
 
@@ -610,11 +918,42 @@ public abstract class Map extends GameObject {
 
     /**
      * Runs a full update loop for this map and all its gameobjects.
+     *
+     * @throws IllegalStateException If this is the active map and called
+     *                               while a frame of it is running, for
+     *                               example from within an update method or
+     *                               a scheduled task
      */
     public void runFrame() {
         onAct();
     }
 
+    /**
+     * Returns weather a frame of the active map is currently being run.
+     *
+     * @return Weather a frame of the active map is running
+     */
+    static boolean isInActiveFrame() {
+        return inActiveFrame;
+    }
+
+    /**
+     * Runs the given action once the current frame of the active map has
+     * ended, still on the thread that ran the frame. If no such frame is
+     * running, the action is run immediately.
+     *
+     * @param action The action to run
+     */
+    static void runAfterFrame(Runnable action) {
+        synchronized(AFTER_FRAME_ACTIONS) {
+            if(inActiveFrame) {
+                AFTER_FRAME_ACTIONS.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
 
 
     protected void onSet() { }
@@ -988,6 +1327,8 @@ public abstract class Map extends GameObject {
 
         @Override
         public void act() {
+            // Greenfoot's loop is running, so the map must not be driven by a pacer
+            FramePacer.stopActive();
             Map.this.onAct();
         }
 
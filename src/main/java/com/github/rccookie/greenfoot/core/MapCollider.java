@@ -5,7 +5,6 @@ import com.github.rccookie.geometry.Edge;
 import com.github.rccookie.geometry.Vector;
 import com.github.rccookie.greenfoot.core.components.Collider;
 
-import java.util.HashSet;
 import java.util.Set;
 
 public class MapCollider extends Collider {
@@ -14,6 +13,17 @@ public class MapCollider extends Collider {
         registerPrefab(MapCollider.class, g -> new MapCollider((Map)g));
     }
 
+    /**
+     * The borders of the map for each combination of visible sides. The
+     * arrays are shared between calls and must not be modified.
+     */
+    private Border[][] borders = null;
+
+    /**
+     * The map size the borders were calculated for.
+     */
+    private int cachedWidth, cachedHeight;
+
     /**
      * Creates a new component attached to the given map.
      *
@@ -51,22 +61,49 @@ public class MapCollider extends Collider {
 
     @Override
     public Border[] getBorders(Vector towards) {
+        int width = gameObject.getWidth(), height = gameObject.getHeight();
+        if(borders == null || width != cachedWidth || height != cachedHeight)
+            calculateBorders(width, height);
+
+        int visible = 0;
+        if(towards.x() <= width - 0.5) visible |= 1;
+        if(towards.x() >= 0.5) visible |= 2;
+        if(towards.y() <= height - 0.5) visible |= 4;
+        if(towards.y() >= 0.5) visible |= 8;
+        return borders[visible];
+    }
+
+    @Override
+    public Border[] getAllBorders() {
+        int width = gameObject.getWidth(), height = gameObject.getHeight();
+        if(borders == null || width != cachedWidth || height != cachedHeight)
+            calculateBorders(width, height);
+        return borders[borders.length - 1];
+    }
+
+    private void calculateBorders(int width, int height) {
         // The world bounds should be visible from the inside, so the walls have to be facing counterclockwise
         Vector topLeft = Vector.of(-0.5, -0.5),
-                topRight = Vector.of(gameObject.getWidth() - 0.5, -0.5),
-                bottomLeft = Vector.of(-0.5, gameObject.getHeight() - 0.5),
-                bottomRight = Vector.of(gameObject.getWidth() - 0.5, gameObject.getHeight() - 0.5);
-        Set<Border> borders = new HashSet<>();
-        if(towards.x() <= gameObject.getWidth() - 0.5)
-            borders.add(new Edge(bottomRight, topRight));
-        if(towards.x() >= 0.5)
-            borders.add(new Edge(topLeft, bottomLeft));
-        if(towards.y() <= gameObject.getHeight() - 0.5)
-            borders.add(new Edge(bottomLeft, bottomRight));
-        if(towards.y() >= 0.5)
-            borders.add(new Edge(topRight, topLeft));
-
-        //noinspection ToArrayCallWithZeroLengthArrayArgument
-        return borders.toArray(new Border[borders.size()]);
+                topRight = Vector.of(width - 0.5, -0.5),
+                bottomLeft = Vector.of(-0.5, height - 0.5),
+                bottomRight = Vector.of(width - 0.5, height - 0.5);
+        Edge[] edges = {
+                new Edge(bottomRight, topRight),
+                new Edge(topLeft, bottomLeft),
+                new Edge(bottomLeft, bottomRight),
+                new Edge(topRight, topLeft)
+        };
+
+        // One array per combination of visible edges, indexed by a bitmask of the edges
+        Border[][] borders = new Border[1 << edges.length][];
+        for(int visible = 0; visible < borders.length; visible++) {
+            borders[visible] = new Border[Integer.bitCount(visible)];
+            for(int i = 0, j = 0; i < edges.length; i++)
+                if((visible & (1 << i)) != 0) borders[visible][j++] = edges[i];
+        }
+
+        this.borders = borders;
+        cachedWidth = width;
+        cachedHeight = height;
     }
 }
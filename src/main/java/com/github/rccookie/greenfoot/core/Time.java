@@ -11,14 +11,45 @@ public final class Time {
 
     private static final com.github.rccookie.event.Time TIME_TIME = new com.github.rccookie.event.Time();
 
+    /**
+     * Weather every frame has the same, static length, independent of the
+     * real time passed.
+     */
+    private static boolean useStaticFrameLength = false;
+
+    /**
+     * The length of each frame in seconds if {@link #useStaticFrameLength}
+     * is enabled.
+     */
+    private static double staticFrameLength = 1 / 60d;
+
+    /**
+     * The time in seconds advanced by the static frame length, used while
+     * {@link #useStaticFrameLength} is enabled.
+     */
+    private static double staticTime = 0;
+
+    /**
+     * Added to the real time so that the time continues where the static
+     * time stopped after disabling static frame lengths.
+     */
+    private static double timeOffset = 0;
+
 
     static {
-        Core.registerOnEarlyGlobalUpdate(TIME_TIME::update);
+        Core.registerOnEarlyGlobalUpdate(Time::update);
+        Core.registerOnEarlyGlobalUpdate(FrameAllocations::update);
+    }
+
+
+    private static void update() {
+        TIME_TIME.update();
+        if(useStaticFrameLength) staticTime += staticFrameLength;
     }
 
 
     public static double deltaTime() {
-        return TIME_TIME.deltaTime();
+        return useStaticFrameLength ? staticFrameLength : TIME_TIME.deltaTime();
     }
 
     public static double fps() {
@@ -34,8 +65,110 @@ public final class Time {
     }
 
 
+    /**
+     * Returns weather the memory allocated per frame and the garbage
+     * collections per frame are being measured.
+     *
+     * @return Weather allocation tracking is enabled
+     * @see #setAllocationTracking(boolean)
+     */
+    public static boolean isAllocationTracking() {
+        return FrameAllocations.isEnabled();
+    }
+
+    /**
+     * Sets weather the memory allocated by the simulation thread and the
+     * garbage collections should be measured per frame. The measurement is
+     * cheap, but not free, so it is disabled by default. Enabling it resets
+     * all previously measured values.
+     *
+     * @param enabled Weather to track allocations
+     * @throws UnsupportedOperationException If enabling is requested but the
+     *                                       JVM does not support measuring
+     *                                       allocations per thread, or if
+     *                                       not running in a Java session
+     */
+    public static void setAllocationTracking(boolean enabled) {
+        if(!FrameAllocations.setEnabled(enabled))
+            throw new UnsupportedOperationException("Allocation tracking is not supported in this environment");
+    }
+
+    /**
+     * Returns the number of bytes allocated by the simulation thread during
+     * the last frame.
+     *
+     * @return The bytes allocated in the last frame, or {@code -1} if
+     *         allocation tracking is disabled or no frame has been measured
+     *         yet
+     */
+    public static long allocatedBytes() {
+        return FrameAllocations.allocatedBytes();
+    }
+
+    /**
+     * Returns the average number of bytes allocated by the simulation thread
+     * per frame, over the last 60 frames.
+     *
+     * @return The average bytes allocated per frame, or {@link Double#NaN}
+     *         if allocation tracking is disabled or no frame has been
+     *         measured yet
+     */
+    public static double averageAllocatedBytes() {
+        return FrameAllocations.averageAllocatedBytes();
+    }
+
+    /**
+     * Returns the number of garbage collections that happened during the
+     * last frame, on any thread.
+     *
+     * @return The garbage collections in the last frame, or {@code -1} if
+     *         allocation tracking is disabled or no frame has been measured
+     *         yet
+     */
+    public static long gcCount() {
+        return FrameAllocations.gcCount();
+    }
+
+    /**
+     * Returns the average number of garbage collections per frame, over the
+     * last 60 frames.
+     *
+     * @return The average garbage collections per frame, or
+     *         {@link Double#NaN} if allocation tracking is disabled or no
+     *         frame has been measured yet
+     */
+    public static double averageGcCount() {
+        return FrameAllocations.averageGcCount();
+    }
+
+    /**
+     * Returns the time spent on garbage collection during the last frame, in
+     * seconds. Concurrent collectors may report time that did not pause the
+     * simulation.
+     *
+     * @return The garbage collection time in the last frame, or
+     *         {@link Double#NaN} if allocation tracking is disabled or no
+     *         frame has been measured yet
+     */
+    public static double gcTime() {
+        return FrameAllocations.gcTime();
+    }
+
+    /**
+     * Returns the average time spent on garbage collection per frame, in
+     * seconds, over the last 60 frames.
+     *
+     * @return The average garbage collection time per frame, or
+     *         {@link Double#NaN} if allocation tracking is disabled or no
+     *         frame has been measured yet
+     */
+    public static double averageGcTime() {
+        return FrameAllocations.averageGcTime();
+    }
+
+
     public static double seconds() {
-        return TIME_TIME.time();
+        return useStaticFrameLength ? staticTime : TIME_TIME.time() + timeOffset;
     }
 
     public static long millis() {
@@ -81,20 +214,49 @@ public final class Time {
     }
 
 
-    public boolean isStaticFrameLength() {
-        return TIME_TIME.useStaticFrameLength;
+    /**
+     * Returns weather every frame has the same, static length.
+     *
+     * @return Weather static frame lengths are used
+     * @see #useStaticFrameLength(boolean)
+     */
+    public static boolean isStaticFrameLength() {
+        return useStaticFrameLength;
     }
 
-    public void useStaticFrameLength(boolean flag) {
-        TIME_TIME.useStaticFrameLength = flag;
+    /**
+     * Sets weather every frame should have the same, static length. If
+     * enabled, {@link #deltaTime()} always returns the static frame length,
+     * and {@link #seconds()} advances by exactly that length per frame,
+     * independent of the real time passed and the time scale. Disabling it
+     * again continues the time from where the static time stopped.
+     *
+     * @param flag Weather static frame lengths should be used
+     */
+    public static void useStaticFrameLength(boolean flag) {
+        if(flag == useStaticFrameLength) return;
+        if(flag) staticTime = seconds();
+        else timeOffset = staticTime - TIME_TIME.time();
+        useStaticFrameLength = flag;
     }
 
-    public double getStaticFrameLength() {
-        return TIME_TIME.staticFrameLength;
+    /**
+     * Returns the length of each frame if static frame lengths are used.
+     *
+     * @return The static frame length, in seconds
+     */
+    public static double getStaticFrameLength() {
+        return staticFrameLength;
     }
 
-    public void setStaticFrameLength(double staticFrameLength) {
-        TIME_TIME.staticFrameLength = staticFrameLength;
+    /**
+     * Sets the length of each frame if static frame lengths are used. The
+     * default is 1/60 of a second.
+     *
+     * @param staticFrameLength The static frame length, in seconds
+     */
+    public static void setStaticFrameLength(double staticFrameLength) {
+        Time.staticFrameLength = Arguments.checkRange(staticFrameLength, 0, Double.POSITIVE_INFINITY);
     }
 
 
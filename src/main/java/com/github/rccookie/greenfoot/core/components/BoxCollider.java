@@ -1,11 +1,13 @@
 package com.github.rccookie.greenfoot.core.components;
 
 import com.github.rccookie.geometry.Border;
+import com.github.rccookie.geometry.Edge;
 import com.github.rccookie.geometry.Vector;
 import com.github.rccookie.geometry.Vectors;
 import com.github.rccookie.greenfoot.core.GameObject;
 import com.github.rccookie.util.Arguments;
 
+import java.util.Arrays;
 import java.util.Set;
 
 public class BoxCollider extends Collider {
@@ -101,60 +103,90 @@ public class BoxCollider extends Collider {
 
     @Override
     public Bounds getBounds() {
-        /*double rotation = gameObject.transform().worldRotation();
-
-        double ct = Math.cos(rotation);
-        double st = Math.sin(rotation);
-
-        hct = h * ct;
-        wct = w * ct;
-        hst = h * st;
-        wst = w * st;
-
-        if ( theta > 0 )
-        {
-            if ( theta < 90)
-            {
-                // 0 < theta < 90
-                y_min = A_y;
-                y_max = A_y + hct + wst;
-                x_min = A_x - hst;
-                x_max = A_x + wct;
-            }
-            else
-            {
-                // 90 <= theta <= 180
-                y_min = A_y + hct;
-                y_max = A_y + wst;
-                x_min = A_x - hst + wct;
-                x_max = A_x;
-            }
-        }
-        else
-        {
-            if ( theta > -90 )
-            {
-                // -90 < theta <= 0
-                y_min = A_y + wst;
-                y_max = A_y + hct;
-                x_min = A_x;
-                x_max = A_x + wct - hst;
-            }
-            else
-            {
-                // -180 <= theta <= -90
-                y_min = A_y + wst + hct;
-                y_max = A_y;
-                x_min = A_x + wct;
-                x_max = A_x - hst;
-            }
-        }
-        return new Bounds(gameObject.transform().worldLocation(), getSize().get2D().rotate(gameObject.transform().worldRotation());*/
-        return null;
+        Vector size = getCurrentSize();
+        if(size.x() == 0 && size.y() == 0) return null;
+        if(this.size == null)
+            return new Bounds(gameObject.location(), Vector.of(gameObject.getBoundsWidth(), gameObject.getBoundsHeight()));
+        // The axis aligned bounding box of the rotated box
+        double radians = Math.toRadians(gameObject.rotation()), sin = Math.abs(Math.sin(radians)), cos = Math.abs(Math.cos(radians));
+        return new Bounds(gameObject.location(), Vector.of(size.x() * cos + size.y() * sin, size.x() * sin + size.y() * cos));
     }
 
     @Override
     public Border[] getBorders(Vector towards) {
-        return new Border[0];
+        Border[] edges = getAllBorders();
+        Border[] facing = new Border[edges.length];
+        int count = 0;
+        for(Border border : edges) {
+            Edge edge = (Edge) border;
+            double ex = edge.end.x() - edge.start.x(), ey = edge.end.y() - edge.start.y();
+            if((towards.x() - edge.start.x()) * ey - (towards.y() - edge.start.y()) * ex > 0) facing[count++] = edge;
+        }
+        return Arrays.copyOf(facing, count);
+    }
+
+    @Override
+    public Border[] getAllBorders() {
+        Vector size = getCurrentSize();
+        if(size.x() == 0 && size.y() == 0) return new Border[0];
+        double halfWidth = 0.5 * size.x(), halfHeight = 0.5 * size.y();
+        Vector topLeft = corner(-halfWidth, -halfHeight), topRight = corner(halfWidth, -halfHeight);
+        Vector bottomRight = corner(halfWidth, halfHeight), bottomLeft = corner(-halfWidth, halfHeight);
+        return new Border[] {
+                new Edge(topLeft, topRight),
+                new Edge(topRight, bottomRight),
+                new Edge(bottomRight, bottomLeft),
+                new Edge(bottomLeft, topLeft)
+        };
+    }
+
+    /**
+     * Returns the corner with the given offset in the box's local space.
+     */
+    private Vector corner(double x, double y) {
+        double radians = Math.toRadians(gameObject.rotation()), sin = Math.sin(radians), cos = Math.cos(radians);
+        Vector location = gameObject.location();
+        return Vector.of(location.x() + x * cos - y * sin, location.y() + x * sin + y * cos);
+    }
+
+    @Override
+    public double raycast(double x, double y, double dx, double dy, double maxDistance, double[] normal) {
+        Vector size = getCurrentSize(), location = gameObject.location();
+        double halfWidth = 0.5 * size.x(), halfHeight = 0.5 * size.y();
+        if(halfWidth == 0 && halfHeight == 0) return maxDistance;
+
+        // Transform the ray into the local space of the box, where it is axis aligned
+        double radians = Math.toRadians(gameObject.rotation()), sin = Math.sin(radians), cos = Math.cos(radians);
+        double px = (x - location.x()) * cos + (y - location.y()) * sin;
+        double py = (y - location.y()) * cos - (x - location.x()) * sin;
+        double ldx = dx * cos + dy * sin, ldy = dy * cos - dx * sin;
+        if(Math.abs(px) < halfWidth && Math.abs(py) < halfHeight) return maxDistance;
+
+        // Slab test, remembering which axis the ray enters last
+        double entry = Double.NEGATIVE_INFINITY, exit = Double.POSITIVE_INFINITY;
+        double nx = 0, ny = 0;
+        if(ldx != 0) {
+            double t1 = (-halfWidth - px) / ldx, t2 = (halfWidth - px) / ldx;
+            entry = Math.min(t1, t2);
+            exit = Math.max(t1, t2);
+            nx = ldx > 0 ? -1 : 1;
+        }
+        else if(Math.abs(px) > halfWidth) return maxDistance;
+        if(ldy != 0) {
+            double t1 = (-halfHeight - py) / ldy, t2 = (halfHeight - py) / ldy;
+            double entryY = Math.min(t1, t2);
+            exit = Math.min(exit, Math.max(t1, t2));
+            if(entryY > entry) {
+                entry = entryY;
+                nx = 0;
+                ny = ldy > 0 ? -1 : 1;
+            }
+        }
+        else if(Math.abs(py) > halfHeight) return maxDistance;
+        if(entry > exit || entry < 0 || entry >= maxDistance) return maxDistance;
+
+        normal[0] = nx * cos - ny * sin;
+        normal[1] = nx * sin + ny * cos;
+        return entry;
     }
 }
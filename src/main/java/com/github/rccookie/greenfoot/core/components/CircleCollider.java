@@ -55,7 +55,9 @@ public class CircleCollider extends Collider {
 
     @Override
     public Bounds getBounds() {
-        return null;
+        Image image = gameObject.getImage();
+        if(image == null || (image.getWidth() == 0 && image.getHeight() == 0)) return null;
+        return new Bounds(gameObject.location(), Vector.of(2 * radius, 2 * radius));
     }
 
     @Override
@@ -67,4 +69,17 @@ public class CircleCollider extends Collider {
 
         return new Border[] { new Circle(loc, getRadius(), rotation, false) };
     }
+
+    @Override
+    public Border[] getAllBorders() {
+        return getBorders(gameObject.location());
+    }
+
+    @Override
+    public double raycast(double x, double y, double dx, double dy, double maxDistance, double[] normal) {
+        Image image = gameObject.getImage();
+        if(image == null || (image.getWidth() == 0 && image.getHeight() == 0)) return maxDistance;
+        Vector location = gameObject.location();
+        return raycastCircle(x, y, dx, dy, maxDistance, location.x(), location.y(), radius, normal);
+    }
 }
@@ -1,10 +1,12 @@
 package com.github.rccookie.greenfoot.core.components;
 
 import com.github.rccookie.geometry.Border;
+import com.github.rccookie.geometry.Edge;
 import com.github.rccookie.geometry.Vector;
 import com.github.rccookie.geometry.Vectors;
 import com.github.rccookie.greenfoot.core.Component;
 import com.github.rccookie.greenfoot.core.GameObject;
+import com.github.rccookie.greenfoot.core.Map;
 import com.github.rccookie.greenfoot.java.util.Optional;
 import com.github.rccookie.util.Arguments;
 
@@ -12,6 +14,11 @@ import java.util.Set;
 
 public abstract class Collider extends Component {
 
+    /**
+     * Weather this collider never moves or changes its shape.
+     */
+    private boolean isStatic = false;
+
     /**
      * Creates a new component attached to the given gameobject.
      *
@@ -20,6 +27,45 @@ public abstract class Collider extends Component {
      */
     public Collider(GameObject gameObject) {
         super(gameObject, true, true);
+        Map map = gameObject.getMap();
+        if(map != null) map.colliderModified(gameObject);
+    }
+
+
+
+    /**
+     * Returns weather this collider is marked as static.
+     *
+     * @return Weather this collider is static
+     * @see #setStatic(boolean)
+     */
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    /**
+     * Sets weather this collider is static. Static colliders are expected to
+     * never move or change their shape, which allows them to be baked into an
+     * acceleration structure on their map once and to be excluded from the
+     * per-query work done for moving objects. If a static object does get
+     * modified, {@link Map#invalidateStaticColliders()} has to be called on
+     * its map.
+     *
+     * @param isStatic Weather this collider should be static
+     */
+    public void setStatic(boolean isStatic) {
+        if(this.isStatic == isStatic) return;
+        this.isStatic = isStatic;
+        Map map = gameObject.getMap();
+        if(map != null) map.invalidateStaticColliders();
+    }
+
+    @Override
+    public void onRemove() {
+        Map map = gameObject.getMap();
+        if(map == null) return;
+        if(isStatic) map.invalidateStaticColliders();
+        else map.colliderModified(gameObject);
     }
 
 
@@ -67,10 +113,137 @@ public abstract class Collider extends Component {
 
     public abstract boolean contains(Vector point);
 
+    /**
+     * Returns the axis aligned bounding box of this collider in map
+     * coordinates.
+     *
+     * @return The bounds of this collider, or {@code null} if they are not
+     *         known
+     */
     public abstract Bounds getBounds();
 
+    /**
+     * Returns the borders of this collider that are visible from the given
+     * location. The returned array may be shared between calls and must not
+     * be modified.
+     *
+     * @param towards The location the borders should be facing
+     * @return The visible borders of this collider
+     */
     public abstract Border[] getBorders(Vector towards);
 
+    /**
+     * Returns all borders of this collider, no matter which direction they
+     * are facing. Edges face towards their right side when looking from their
+     * start to their end, which is the side they are returned for by
+     * {@link #getBorders(Vector)}. The returned array may be shared between
+     * calls and must not be modified.
+     * <p>The default implementation returns {@code null}, meaning that the
+     * borders are not known independent of a location. Such colliders are
+     * left out of border snapshots.
+     *
+     * @return All borders of this collider, or {@code null}
+     */
+    public Border[] getAllBorders() {
+        return null;
+    }
+
+    /**
+     * Intersects a ray directly with the shape of this collider, without
+     * creating any borders. Like for the borders of this collider, the shape
+     * is only hit from the outside.
+     * <p>The default implementation intersects the edges returned by
+     * {@link #getAllBorders()}, and does not support colliders whose borders
+     * are not known or are not all edges.
+     *
+     * @param x The x coordinate of the ray's origin
+     * @param y The y coordinate of the ray's origin
+     * @param dx The x component of the normalized ray direction
+     * @param dy The y component of the normalized ray direction
+     * @param maxDistance The maximum length of the ray
+     * @param normal Receives the normalized surface normal at the location
+     *               of the hit in its first two elements, if there is a hit
+     * @return The distance of the hit, {@code maxDistance} if nothing closer
+     *         was hit, or {@link Double#NaN} if this collider does not
+     *         support raycasts without borders
+     */
+    public double raycast(double x, double y, double dx, double dy, double maxDistance, double[] normal) {
+        Border[] borders = getAllBorders();
+        if(borders == null) return Double.NaN;
+        for(Border border : borders)
+            if(!(border instanceof Edge)) return Double.NaN;
+        for(Border border : borders) {
+            Edge edge = (Edge) border;
+            maxDistance = raycastEdge(x, y, dx, dy, maxDistance, edge.start.x(), edge.start.y(), edge.end.x(), edge.end.y(), normal);
+        }
+        return maxDistance;
+    }
+
+
+
+    /**
+     * Intersects a ray with the front side of an edge, which is on the
+     * right of the edge when looking from its start to its end.
+     *
+     * @param x The x coordinate of the ray's origin
+     * @param y The y coordinate of the ray's origin
+     * @param dx The x component of the normalized ray direction
+     * @param dy The y component of the normalized ray direction
+     * @param maxDistance The maximum length of the ray
+     * @param ax The x coordinate of the start of the edge
+     * @param ay The y coordinate of the start of the edge
+     * @param bx The x coordinate of the end of the edge
+     * @param by The y coordinate of the end of the edge
+     * @param normal Receives the normal of the edge if it was hit
+     * @return The distance of the hit, or {@code maxDistance} if the edge was
+     *         not hit closer than that
+     */
+    public static double raycastEdge(double x, double y, double dx, double dy, double maxDistance,
+                                     double ax, double ay, double bx, double by, double[] normal) {
+        double ex = bx - ax, ey = by - ay;
+        if((x - ax) * ey - (y - ay) * ex <= 0) return maxDistance;
+        double denominator = dx * ey - dy * ex;
+        if(denominator == 0) return maxDistance;
+        double t = ((ax - x) * ey - (ay - y) * ex) / denominator;
+        double u = ((ax - x) * dy - (ay - y) * dx) / denominator;
+        if(t < 0 || t >= maxDistance || u < 0 || u > 1) return maxDistance;
+        double length = Math.sqrt(ex * ex + ey * ey);
+        normal[0] = ey / length;
+        normal[1] = -ex / length;
+        return t;
+    }
+
+    /**
+     * Intersects a ray with the outside of a circle.
+     *
+     * @param x The x coordinate of the ray's origin
+     * @param y The y coordinate of the ray's origin
+     * @param dx The x component of the normalized ray direction
+     * @param dy The y component of the normalized ray direction
+     * @param maxDistance The maximum length of the ray
+     * @param cx The x coordinate of the circle's center
+     * @param cy The y coordinate of the circle's center
+     * @param radius The radius of the circle
+     * @param normal Receives the normal of the circle at the hit, if it was
+     *               hit
+     * @return The distance of the hit, or {@code maxDistance} if the circle
+     *         was not hit closer than that
+     */
+    public static double raycastCircle(double x, double y, double dx, double dy, double maxDistance,
+                                       double cx, double cy, double radius, double[] normal) {
+        cx -= x;
+        cy -= y;
+        double along = cx * dx + cy * dy, sqrDist = cx * cx + cy * cy;
+        if(radius <= 0 || sqrDist <= radius * radius) return maxDistance;
+        double discriminant = along * along - sqrDist + radius * radius;
+        if(discriminant < 0) return maxDistance;
+        double t = along - Math.sqrt(discriminant);
+        if(t < 0 || t >= maxDistance) return maxDistance;
+        normal[0] = (dx * t - cx) / radius;
+        normal[1] = (dy * t - cy) / radius;
+        return t;
+    }
+
 
 
     public static final class Bounds {
@@ -0,0 +1,241 @@
+package com.github.rccookie.greenfoot.core.components;
+
+import com.github.rccookie.greenfoot.core.GameObject;
+import com.github.rccookie.util.Arguments;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable uniform grid over the {@link Collider.Bounds bounds} of a set
+ * of gameobjects, with one grid cell per map cell. Each object is listed in
+ * every cell its bounds overlap. Like {@link ColliderTree}, the bounds are
+ * captured when the grid is built. The bounds are taken as map cells, so
+ * bounds derived from image sizes in pixels cover many cells on maps with a
+ * cell size above 1.
+ * <p>Objects whose collider does not report any bounds or whose bounds lie
+ * completely outside of the grid are kept separately and returned by every
+ * query.
+ */
+public final class ColliderGrid {
+
+    /**
+     * The size of the grid, in cells.
+     */
+    private final int width, height;
+
+    /**
+     * The index of the first entry of each cell in {@link #cellObjects}, plus
+     * the total number of entries at the end.
+     */
+    private final int[] cellStart;
+
+    /**
+     * The objects of all cells, cell by cell.
+     */
+    private final GameObject[] cellObjects;
+
+    /**
+     * The index of the object of each entry in {@link #cellObjects}, counting
+     * each object only once.
+     */
+    private final int[] cellIndices;
+
+    /**
+     * The number of distinct objects in all cells.
+     */
+    private final int insideCount;
+
+    /**
+     * Objects that are not part of any cell.
+     */
+    private final GameObject[] outside;
+
+
+
+    private ColliderGrid(Collection<? extends GameObject> candidates, int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        List<GameObject> inside = new ArrayList<>(candidates.size());
+        List<GameObject> outside = new ArrayList<>();
+        List<int[]> ranges = new ArrayList<>(candidates.size());
+        int[] counts = new int[width * height + 1];
+        for(GameObject object : candidates) {
+            Collider collider = object.getComponent(Collider.class);
+            if(collider == null) continue;
+            Collider.Bounds bounds = collider.getBounds();
+            if(bounds == null || bounds.getMax().x() < 0 || bounds.getMax().y() < 0
+                    || bounds.getMin().x() >= width || bounds.getMin().y() >= height) {
+                outside.add(object);
+                continue;
+            }
+            int[] range = {
+                    Math.max(0, (int) Math.floor(bounds.getMin().x())),
+                    Math.max(0, (int) Math.floor(bounds.getMin().y())),
+                    Math.min(width - 1, (int) Math.floor(bounds.getMax().x())),
+                    Math.min(height - 1, (int) Math.floor(bounds.getMax().y()))
+            };
+            inside.add(object);
+            ranges.add(range);
+            for(int y = range[1]; y <= range[3]; y++)
+                for(int x = range[0]; x <= range[2]; x++)
+                    counts[y * width + x + 1]++;
+        }
+        this.outside = outside.toArray(new GameObject[0]);
+
+        // Prefix sums give the start of each cell, then fill using the counts as cursors
+        for(int i = 1; i < counts.length; i++) counts[i] += counts[i - 1];
+        cellStart = counts.clone();
+        cellObjects = new GameObject[counts[counts.length - 1]];
+        cellIndices = new int[cellObjects.length];
+        insideCount = inside.size();
+        for(int i = 0; i < inside.size(); i++) {
+            int[] range = ranges.get(i);
+            for(int y = range[1]; y <= range[3]; y++)
+                for(int x = range[0]; x <= range[2]; x++) {
+                    int entry = counts[y * width + x]++;
+                    cellObjects[entry] = inside.get(i);
+                    cellIndices[entry] = i;
+                }
+        }
+    }
+
+
+
+    /**
+     * Returns the width of this grid, in cells.
+     *
+     * @return The width of the grid
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of this grid, in cells.
+     *
+     * @return The height of the grid
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Visits the objects in all cells the given ray passes through, cell by
+     * cell in the order the ray enters them, using a DDA traversal. Each
+     * object is visited at most once. The visitor may shorten the ray by
+     * returning a smaller maximum distance, and the traversal stops as soon
+     * as the ray leaves the last cell that can contain a closer hit. Objects
+     * outside the grid are visited first.
+     *
+     * @param x The x coordinate of the ray's origin
+     * @param y The y coordinate of the ray's origin
+     * @param dx The x component of the normalized ray direction
+     * @param dy The y component of the normalized ray direction
+     * @param maxDistance The initial maximum length of the ray
+     * @param visitor The visitor to call for each object
+     * @return The maximum distance returned by the last visitor call
+     */
+    public double raycast(double x, double y, double dx, double dy, double maxDistance, ColliderTree.RayVisitor visitor) {
+        return raycast(x, y, dx, dy, maxDistance, visitor, new ColliderTree.RayBuffer());
+    }
+
+    /**
+     * Visits the objects in all cells the given ray passes through like
+     * {@link #raycast(double, double, double, double, double, ColliderTree.RayVisitor)},
+     * but uses the given buffer to remember the objects already visited
+     * instead of allocating a new set.
+     *
+     * @param x The x coordinate of the ray's origin
+     * @param y The y coordinate of the ray's origin
+     * @param dx The x component of the normalized ray direction
+     * @param dy The y component of the normalized ray direction
+     * @param maxDistance The initial maximum length of the ray
+     * @param visitor The visitor to call for each object
+     * @param buffer The buffer to use for the traversal
+     * @return The maximum distance returned by the last visitor call
+     */
+    public double raycast(double x, double y, double dx, double dy, double maxDistance, ColliderTree.RayVisitor visitor, ColliderTree.RayBuffer buffer) {
+        Arguments.checkNull(visitor, "visitor");
+        Arguments.checkNull(buffer, "buffer");
+        for(GameObject object : outside)
+            maxDistance = visitor.visit(object, maxDistance);
+        if(cellObjects.length == 0) return maxDistance;
+
+        // Clip the ray to the grid
+        double near = 0, far = maxDistance;
+        if(dx == 0) {
+            if(x < 0 || x > width) return maxDistance;
+        } else {
+            double t1 = -x / dx, t2 = (width - x) / dx;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if(dy == 0) {
+            if(y < 0 || y > height) return maxDistance;
+        } else {
+            double t1 = -y / dy, t2 = (height - y) / dy;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if(near > far) return maxDistance;
+
+        int cellX = Math.min(width - 1, Math.max(0, (int) Math.floor(x + dx * near)));
+        int cellY = Math.min(height - 1, Math.max(0, (int) Math.floor(y + dy * near)));
+        int stepX = dx > 0 ? 1 : -1, stepY = dy > 0 ? 1 : -1;
+        double deltaX = dx != 0 ? Math.abs(1 / dx) : Double.POSITIVE_INFINITY;
+        double deltaY = dy != 0 ? Math.abs(1 / dy) : Double.POSITIVE_INFINITY;
+        double nextX = dx > 0 ? (cellX + 1 - x) / dx : dx < 0 ? (cellX - x) / dx : Double.POSITIVE_INFINITY;
+        double nextY = dy > 0 ? (cellY + 1 - y) / dy : dy < 0 ? (cellY - y) / dy : Double.POSITIVE_INFINITY;
+
+        // Each ray gets a new number, objects marked with it were already visited
+        if(buffer.ray == Integer.MAX_VALUE) {
+            Arrays.fill(buffer.visited, 0);
+            buffer.ray = 0;
+        }
+        if(buffer.visited.length < insideCount) buffer.visited = new int[insideCount];
+        int[] visited = buffer.visited;
+        int ray = ++buffer.ray;
+        while(true) {
+            int cell = cellY * width + cellX;
+            for(int i = cellStart[cell], end = cellStart[cell + 1]; i < end; i++) {
+                if(visited[cellIndices[i]] == ray) continue;
+                visited[cellIndices[i]] = ray;
+                maxDistance = visitor.visit(cellObjects[i], maxDistance);
+            }
+
+            // Any object not visited yet can only be hit after the ray left this cell
+            double exit = Math.min(nextX, nextY);
+            if(exit >= maxDistance) return maxDistance;
+
+            if(nextX < nextY) {
+                cellX += stepX;
+                nextX += deltaX;
+                if(cellX < 0 || cellX >= width) return maxDistance;
+            } else {
+                cellY += stepY;
+                nextY += deltaY;
+                if(cellY < 0 || cellY >= height) return maxDistance;
+            }
+        }
+    }
+
+
+
+    /**
+     * Creates a new grid with the given size over the given objects.
+     *
+     * @param objects The objects to build the grid over
+     * @param width The width of the grid, in cells
+     * @param height The height of the grid, in cells
+     * @return The new grid
+     */
+    public static ColliderGrid build(Collection<? extends GameObject> objects, int width, int height) {
+        Arguments.checkNull(objects, "objects");
+        if(width <= 0 || height <= 0) throw new IllegalArgumentException("The size of the grid must be positive");
+        return new ColliderGrid(objects, width, height);
+    }
+}
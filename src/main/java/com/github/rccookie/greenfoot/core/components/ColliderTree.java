@@ -0,0 +1,445 @@
+package com.github.rccookie.greenfoot.core.components;
+
+import com.github.rccookie.greenfoot.core.GameObject;
+import com.github.rccookie.util.Arguments;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * An immutable bounding volume hierarchy over the {@link Collider.Bounds bounds}
+ * of a set of gameobjects. The bounds are captured when the tree is built, so
+ * the tree has to be rebuilt after any of the objects moved or changed their
+ * shape.
+ * <p>Objects without a collider are not part of the tree. Objects whose collider
+ * does not report any bounds are kept separately and returned by every query.
+ */
+public final class ColliderTree {
+
+    /**
+     * A tree without any objects.
+     */
+    public static final ColliderTree EMPTY = new ColliderTree(java.util.Collections.emptyList());
+
+    /**
+     * The maximum number of objects per leaf.
+     */
+    private static final int LEAF_SIZE = 4;
+
+    /**
+     * The maximum depth of the tree. Splitting at the median keeps the tree
+     * balanced, so this is never reached.
+     */
+    private static final int MAX_DEPTH = 64;
+
+
+
+    /**
+     * The bounded objects, ordered so that each leaf covers a continuous range.
+     */
+    private final GameObject[] objects;
+
+    /**
+     * The bounds of each object as {@code minX, minY, maxX, maxY}.
+     */
+    private final double[] objectBounds;
+
+    /**
+     * Objects that have a collider without bounds.
+     */
+    private final GameObject[] unbounded;
+
+    /**
+     * The bounds of each node as {@code minX, minY, maxX, maxY}.
+     */
+    private final double[] nodeBounds;
+
+    /**
+     * For leaves the index of the first object, for inner nodes the index of
+     * the right child. The left child of an inner node always directly follows
+     * its parent.
+     */
+    private final int[] nodeStart;
+
+    /**
+     * The number of objects in each leaf, {@code 0} for inner nodes.
+     */
+    private final int[] nodeCount;
+
+    private int nodes = 0;
+
+
+
+    private ColliderTree(Collection<? extends GameObject> candidates) {
+        List<GameObject> bounded = new ArrayList<>(candidates.size());
+        List<GameObject> unbounded = new ArrayList<>();
+        List<Collider.Bounds> boundsList = new ArrayList<>(candidates.size());
+        for(GameObject object : candidates) {
+            Collider collider = object.getComponent(Collider.class);
+            if(collider == null) continue;
+            Collider.Bounds bounds = collider.getBounds();
+            if(bounds == null) unbounded.add(object);
+            else {
+                bounded.add(object);
+                boundsList.add(bounds);
+            }
+        }
+        this.unbounded = unbounded.toArray(new GameObject[0]);
+
+        int count = bounded.size();
+        double[] bounds = new double[4 * count];
+        int[] order = new int[count];
+        for(int i = 0; i < count; i++) {
+            Collider.Bounds b = boundsList.get(i);
+            bounds[4 * i] = b.getMin().x();
+            bounds[4 * i + 1] = b.getMin().y();
+            bounds[4 * i + 2] = b.getMax().x();
+            bounds[4 * i + 3] = b.getMax().y();
+            order[i] = i;
+        }
+
+        // Median splits never create leaves with a single object, so there are less nodes than objects
+        int maxNodes = Math.max(1, count);
+        nodeBounds = new double[4 * maxNodes];
+        nodeStart = new int[maxNodes];
+        nodeCount = new int[maxNodes];
+        if(count != 0) build(order, bounds, 0, count);
+
+        objects = new GameObject[count];
+        objectBounds = new double[4 * count];
+        for(int i = 0; i < count; i++) {
+            objects[i] = bounded.get(order[i]);
+            System.arraycopy(bounds, 4 * order[i], objectBounds, 4 * i, 4);
+        }
+    }
+
+
+
+    /**
+     * Builds the subtree over the given range of {@code order} and returns the
+     * index of its root node.
+     */
+    private int build(int[] order, double[] bounds, int from, int to) {
+        int node = nodes++;
+        double minX = Double.POSITIVE_INFINITY, minY = minX, maxX = Double.NEGATIVE_INFINITY, maxY = maxX;
+        double minCX = minX, minCY = minX, maxCX = maxX, maxCY = maxX;
+        for(int i = from; i < to; i++) {
+            int o = 4 * order[i];
+            minX = Math.min(minX, bounds[o]);
+            minY = Math.min(minY, bounds[o + 1]);
+            maxX = Math.max(maxX, bounds[o + 2]);
+            maxY = Math.max(maxY, bounds[o + 3]);
+            double cx = bounds[o] + bounds[o + 2], cy = bounds[o + 1] + bounds[o + 3];
+            minCX = Math.min(minCX, cx);
+            minCY = Math.min(minCY, cy);
+            maxCX = Math.max(maxCX, cx);
+            maxCY = Math.max(maxCY, cy);
+        }
+        nodeBounds[4 * node] = minX;
+        nodeBounds[4 * node + 1] = minY;
+        nodeBounds[4 * node + 2] = maxX;
+        nodeBounds[4 * node + 3] = maxY;
+
+        if(to - from <= LEAF_SIZE) {
+            nodeStart[node] = from;
+            nodeCount[node] = to - from;
+            return node;
+        }
+
+        // Split at the median of the centers along the longer axis
+        int axis = maxCX - minCX >= maxCY - minCY ? 0 : 1;
+        int mid = (from + to) >>> 1;
+        select(order, bounds, axis, from, to - 1, mid);
+
+        build(order, bounds, from, mid);
+        nodeStart[node] = build(order, bounds, mid, to);
+        nodeCount[node] = 0;
+        return node;
+    }
+
+    /**
+     * Partially sorts {@code order} so that the element at index {@code k} is
+     * the one that would be there if the range was sorted by center.
+     */
+    private static void select(int[] order, double[] bounds, int axis, int left, int right, int k) {
+        while(right > left) {
+            double pivot = center(bounds, order[(left + right) >>> 1], axis);
+            int i = left, j = right;
+            while(i <= j) {
+                while(center(bounds, order[i], axis) < pivot) i++;
+                while(center(bounds, order[j], axis) > pivot) j--;
+                if(i <= j) {
+                    int tmp = order[i];
+                    order[i++] = order[j];
+                    order[j--] = tmp;
+                }
+            }
+            if(k <= j) right = j;
+            else if(k >= i) left = i;
+            else return;
+        }
+    }
+
+    private static double center(double[] bounds, int index, int axis) {
+        return bounds[4 * index + axis] + bounds[4 * index + axis + 2];
+    }
+
+
+
+    /**
+     * Returns the number of objects in this tree, including those without
+     * bounds.
+     *
+     * @return The number of objects
+     */
+    public int size() {
+        return objects.length + unbounded.length;
+    }
+
+    /**
+     * Returns weather this tree does not contain any objects.
+     *
+     * @return Weather this tree is empty
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Runs the given action for every object in this tree.
+     *
+     * @param action The action to run
+     */
+    public void forEach(Consumer<? super GameObject> action) {
+        for(GameObject object : unbounded) action.accept(object);
+        for(GameObject object : objects) action.accept(object);
+    }
+
+
+
+    /**
+     * Returns an object whose bounds overlap the given area and that matches
+     * the given filter.
+     *
+     * @param minX The left edge of the area
+     * @param minY The top edge of the area
+     * @param maxX The right edge of the area
+     * @param maxY The bottom edge of the area
+     * @param filter The filter the object has to match
+     * @return A matching object, or {@code null}
+     */
+    public GameObject find(double minX, double minY, double maxX, double maxY, Predicate<? super GameObject> filter) {
+        Arguments.checkNull(filter, "filter");
+        for(GameObject object : unbounded)
+            if(filter.test(object)) return object;
+        if(objects.length == 0) return null;
+
+        int[] stack = new int[MAX_DEPTH];
+        int size = 0;
+        stack[size++] = 0;
+        while(size != 0) {
+            int node = stack[--size];
+            if(!overlaps(nodeBounds, node, minX, minY, maxX, maxY)) continue;
+            if(nodeCount[node] == 0) {
+                stack[size++] = nodeStart[node];
+                stack[size++] = node + 1;
+                continue;
+            }
+            for(int i = nodeStart[node], end = i + nodeCount[node]; i < end; i++)
+                if(overlaps(objectBounds, i, minX, minY, maxX, maxY) && filter.test(objects[i]))
+                    return objects[i];
+        }
+        return null;
+    }
+
+    /**
+     * Adds all objects whose bounds overlap the given area to the given
+     * collection.
+     *
+     * @param minX The left edge of the area
+     * @param minY The top edge of the area
+     * @param maxX The right edge of the area
+     * @param maxY The bottom edge of the area
+     * @param out The collection to add the objects to
+     */
+    public void findAll(double minX, double minY, double maxX, double maxY, Collection<? super GameObject> out) {
+        find(minX, minY, maxX, maxY, o -> {
+            out.add(o);
+            return false;
+        });
+    }
+
+    private static boolean overlaps(double[] bounds, int index, double minX, double minY, double maxX, double maxY) {
+        int o = 4 * index;
+        return bounds[o] <= maxX && bounds[o + 2] >= minX && bounds[o + 1] <= maxY && bounds[o + 3] >= minY;
+    }
+
+
+
+    /**
+     * Visits all objects whose bounds are hit by the given ray, roughly
+     * ordered by distance. The visitor may shorten the ray by returning a
+     * smaller maximum distance, for example once it found a hit, which
+     * prunes all objects that are further away.
+     *
+     * @param x The x coordinate of the ray's origin
+     * @param y The y coordinate of the ray's origin
+     * @param dx The x component of the normalized ray direction
+     * @param dy The y component of the normalized ray direction
+     * @param maxDistance The initial maximum length of the ray
+     * @param visitor The visitor to call for each object
+     * @return The maximum distance returned by the last visitor call
+     */
+    public double raycast(double x, double y, double dx, double dy, double maxDistance, RayVisitor visitor) {
+        return raycast(x, y, dx, dy, maxDistance, visitor, new RayBuffer());
+    }
+
+    /**
+     * Visits all objects whose bounds are hit by the given ray like
+     * {@link #raycast(double, double, double, double, double, RayVisitor)},
+     * but uses the given buffer for the traversal instead of allocating a
+     * new one.
+     *
+     * @param x The x coordinate of the ray's origin
+     * @param y The y coordinate of the ray's origin
+     * @param dx The x component of the normalized ray direction
+     * @param dy The y component of the normalized ray direction
+     * @param maxDistance The initial maximum length of the ray
+     * @param visitor The visitor to call for each object
+     * @param buffer The buffer to use for the traversal
+     * @return The maximum distance returned by the last visitor call
+     */
+    public double raycast(double x, double y, double dx, double dy, double maxDistance, RayVisitor visitor, RayBuffer buffer) {
+        Arguments.checkNull(visitor, "visitor");
+        Arguments.checkNull(buffer, "buffer");
+        for(GameObject object : unbounded)
+            maxDistance = visitor.visit(object, maxDistance);
+        if(objects.length == 0) return maxDistance;
+
+        double invDX = 1 / dx, invDY = 1 / dy;
+        int[] stack = buffer.stack;
+        double[] entries = buffer.entries;
+        int size = 0;
+
+        double rootEntry = entry(nodeBounds, 0, x, y, invDX, invDY);
+        if(rootEntry > maxDistance) return maxDistance;
+        stack[size] = 0;
+        entries[size++] = rootEntry;
+
+        while(size != 0) {
+            int node = stack[--size];
+            if(entries[size] > maxDistance) continue;
+
+            if(nodeCount[node] == 0) {
+                int left = node + 1, right = nodeStart[node];
+                double leftEntry = entry(nodeBounds, left, x, y, invDX, invDY);
+                double rightEntry = entry(nodeBounds, right, x, y, invDX, invDY);
+                // Push the further child first so the nearer one gets visited first
+                if(leftEntry > rightEntry) {
+                    int tmpNode = left; left = right; right = tmpNode;
+                    double tmpEntry = leftEntry; leftEntry = rightEntry; rightEntry = tmpEntry;
+                }
+                if(rightEntry <= maxDistance) {
+                    stack[size] = right;
+                    entries[size++] = rightEntry;
+                }
+                if(leftEntry <= maxDistance) {
+                    stack[size] = left;
+                    entries[size++] = leftEntry;
+                }
+                continue;
+            }
+
+            for(int i = nodeStart[node], end = i + nodeCount[node]; i < end; i++)
+                if(entry(objectBounds, i, x, y, invDX, invDY) <= maxDistance)
+                    maxDistance = visitor.visit(objects[i], maxDistance);
+        }
+        return maxDistance;
+    }
+
+    /**
+     * Returns the distance at which the ray enters the given box, {@code 0}
+     * if it starts inside, or {@link Double#POSITIVE_INFINITY} if it misses.
+     */
+    private static double entry(double[] bounds, int index, double x, double y, double invDX, double invDY) {
+        int o = 4 * index;
+        double near = 0, far = Double.POSITIVE_INFINITY;
+
+        if(Double.isInfinite(invDX)) {
+            if(x < bounds[o] || x > bounds[o + 2]) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (bounds[o] - x) * invDX, t2 = (bounds[o + 2] - x) * invDX;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if(Double.isInfinite(invDY)) {
+            if(y < bounds[o + 1] || y > bounds[o + 3]) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = (bounds[o + 1] - y) * invDY, t2 = (bounds[o + 3] - y) * invDY;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+
+
+
+    /**
+     * Creates a new tree over the given objects.
+     *
+     * @param objects The objects to build the tree over
+     * @return The new tree
+     */
+    public static ColliderTree build(Collection<? extends GameObject> objects) {
+        return new ColliderTree(Arguments.checkNull(objects, "objects"));
+    }
+
+
+
+    /**
+     * Reusable working memory for raycasts through a {@link ColliderTree} or
+     * a {@link ColliderGrid}. Keeping one buffer per caller makes repeated
+     * raycasts allocation free. A buffer must not be used by multiple
+     * threads at the same time.
+     */
+    public static final class RayBuffer {
+
+        /**
+         * The nodes still to visit and the distance at which the ray enters
+         * each of them.
+         */
+        final int[] stack = new int[MAX_DEPTH];
+        final double[] entries = new double[MAX_DEPTH];
+
+        /**
+         * The ray each object of a grid was last visited by, indexed by the
+         * object's index within the grid. Grows as needed.
+         */
+        int[] visited = new int[0];
+
+        /**
+         * The number of the current ray through a grid.
+         */
+        int ray = 0;
+    }
+
+    /**
+     * Visitor for objects hit by a ray in {@link #raycast(double, double, double, double, double, RayVisitor)}.
+     */
+    @FunctionalInterface
+    public interface RayVisitor {
+
+        /**
+         * Called for an object whose bounds are hit by the ray.
+         *
+         * @param object The object that may be hit by the ray
+         * @param maxDistance The current maximum length of the ray
+         * @return The new maximum length of the ray. Must not be larger
+         *         than {@code maxDistance}
+         */
+        double visit(GameObject object, double maxDistance);
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.rccookie.greenfoot.core.jfr;
+
+import com.github.rccookie.greenfoot.core.Core;
+import com.github.rccookie.greenfoot.core.GameObject;
+import com.github.rccookie.greenfoot.core.Map;
+import com.github.rccookie.greenfoot.core.Time;
+import jdk.jfr.EventType;
+
+/**
+ * Emits the Java Flight Recorder events of the engine. Events are only
+ * created if the Flight Recorder is recording them, which is checked using
+ * the cached event types without allocating, so the overhead is negligible
+ * otherwise. Raycast and task events are disabled by default because of
+ * their frequency and have to be enabled explicitly in the recording
+ * settings. In online sessions, where the Flight Recorder is not available,
+ * all methods do nothing.
+ * <p>Methods starting an event return {@code null} if the event is not
+ * recorded. The matching end method accepts {@code null}.
+ */
+public final class EngineEvents {
+
+    private EngineEvents() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Weather the Flight Recorder may be available.
+     */
+    private static final boolean AVAILABLE = Core.getRealSession().isJava();
+
+    /**
+     * The types of the events, checked before creating an event. Only
+     * loaded if the Flight Recorder may be available.
+     */
+    private static final class Types {
+        static final EventType FRAME = EventType.getEventType(FrameEvent.class);
+        static final EventType PHASE = EventType.getEventType(PhaseEvent.class);
+        static final EventType RAYCAST = EventType.getEventType(RaycastEvent.class);
+        static final EventType TASK = EventType.getEventType(TaskEvent.class);
+        static final EventType OBJECT_ADDED = EventType.getEventType(ObjectAddedEvent.class);
+        static final EventType OBJECT_REMOVED = EventType.getEventType(ObjectRemovedEvent.class);
+    }
+
+
+
+    public static FrameEvent beginFrame(Map map) {
+        if(!AVAILABLE || !Types.FRAME.isEnabled()) return null;
+        FrameEvent event = new FrameEvent();
+        event.frameIndex = Time.frameIndex();
+        event.map = map.toString();
+        event.begin();
+        return event;
+    }
+
+    public static void endFrame(FrameEvent event, int objects) {
+        if(event == null) return;
+        event.objects = objects;
+        event.commit();
+    }
+
+    public static PhaseEvent beginPhase(Map map, String phase) {
+        if(!AVAILABLE || !Types.PHASE.isEnabled()) return null;
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase;
+        event.frameIndex = Time.frameIndex();
+        event.map = map.toString();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the given phase and begins the next one.
+     *
+     * @return The event of the next phase
+     */
+    public static PhaseEvent nextPhase(PhaseEvent current, Map map, String phase) {
+        endPhase(current);
+        return beginPhase(map, phase);
+    }
+
+    public static void endPhase(PhaseEvent event) {
+        if(event != null) event.commit();
+    }
+
+    public static RaycastEvent beginRaycast() {
+        if(!AVAILABLE || !Types.RAYCAST.isEnabled()) return null;
+        RaycastEvent event = new RaycastEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endRaycast(RaycastEvent event, int rays, int candidates) {
+        if(event == null) return;
+        event.rays = rays;
+        event.candidates = candidates;
+        event.commit();
+    }
+
+    public static TaskEvent beginTask(boolean repeating) {
+        if(!AVAILABLE || !Types.TASK.isEnabled()) return null;
+        TaskEvent event = new TaskEvent();
+        event.repeating = repeating;
+        event.begin();
+        return event;
+    }
+
+    public static void endTask(TaskEvent event) {
+        if(event != null) event.commit();
+    }
+
+    public static void objectAdded(GameObject object, Map map) {
+        if(!AVAILABLE || !Types.OBJECT_ADDED.isEnabled()) return;
+        ObjectAddedEvent event = new ObjectAddedEvent();
+        event.objectType = object.getClass();
+        event.map = map.toString();
+        event.commit();
+    }
+
+    public static void objectRemoved(GameObject object, Map map) {
+        if(!AVAILABLE || !Types.OBJECT_REMOVED.isEnabled()) return;
+        ObjectRemovedEvent event = new ObjectRemovedEvent();
+        event.objectType = object.getClass();
+        event.map = map.toString();
+        event.commit();
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.rccookie.greenfoot.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded for every frame a map runs, from the early global update until
+ * the late global update.
+ */
+@Name("com.github.rccookie.greenfoot.Frame")
+@Label("Frame")
+@Category({ "Greenfoot Core", "Frames" })
+@Description("A complete update of a map")
+public final class FrameEvent extends jdk.jfr.Event {
+
+    @Label("Frame Index")
+    long frameIndex;
+
+    @Label("Map")
+    String map;
+
+    @Label("Objects")
+    @Description("The number of objects on the map at the end of the frame")
+    int objects;
+
+    FrameEvent() { }
+}
@@ -0,0 +1,24 @@
+package com.github.rccookie.greenfoot.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when an object gets added to a map.
+ */
+@Name("com.github.rccookie.greenfoot.ObjectAdded")
+@Label("Object Added")
+@Category({ "Greenfoot Core", "Objects" })
+@Description("An object was added to a map")
+public final class ObjectAddedEvent extends jdk.jfr.Event {
+
+    @Label("Object Type")
+    Class<?> objectType;
+
+    @Label("Map")
+    String map;
+
+    ObjectAddedEvent() { }
+}
@@ -0,0 +1,24 @@
+package com.github.rccookie.greenfoot.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when an object gets removed from a map.
+ */
+@Name("com.github.rccookie.greenfoot.ObjectRemoved")
+@Label("Object Removed")
+@Category({ "Greenfoot Core", "Objects" })
+@Description("An object was removed from a map")
+public final class ObjectRemovedEvent extends jdk.jfr.Event {
+
+    @Label("Object Type")
+    Class<?> objectType;
+
+    @Label("Map")
+    String map;
+
+    ObjectRemovedEvent() { }
+}
@@ -0,0 +1,30 @@
+package com.github.rccookie.greenfoot.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Recorded for every phase of a frame, like the update of all objects,
+ * that takes at least a millisecond by default.
+ */
+@Name("com.github.rccookie.greenfoot.Phase")
+@Label("Frame Phase")
+@Category({ "Greenfoot Core", "Frames" })
+@Description("A single phase of the update of a map")
+@Threshold("1 ms")
+public final class PhaseEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Frame Index")
+    long frameIndex;
+
+    @Label("Map")
+    String map;
+
+    PhaseEvent() { }
+}
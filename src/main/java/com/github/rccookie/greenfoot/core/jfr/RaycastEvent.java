@@ -0,0 +1,28 @@
+package com.github.rccookie.greenfoot.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded for every calculation of a raycast builder, which may contain
+ * any number of rays. Disabled by default because raycasts are frequent.
+ */
+@Name("com.github.rccookie.greenfoot.Raycast")
+@Label("Raycast")
+@Category({ "Greenfoot Core", "Raycasts" })
+@Description("The calculation of one or more rays")
+@Enabled(false)
+public final class RaycastEvent extends jdk.jfr.Event {
+
+    @Label("Rays")
+    int rays;
+
+    @Label("Candidates")
+    @Description("The number of objects the rays were tested against, or -1 if not known")
+    int candidates;
+
+    RaycastEvent() { }
+}
@@ -0,0 +1,25 @@
+package com.github.rccookie.greenfoot.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded for every run of a task scheduled using
+ * {@link com.github.rccookie.greenfoot.core.Execution}. Disabled by default
+ * because tasks are frequent.
+ */
+@Name("com.github.rccookie.greenfoot.Task")
+@Label("Task")
+@Category({ "Greenfoot Core", "Execution" })
+@Description("The run of a scheduled task")
+@Enabled(false)
+public final class TaskEvent extends jdk.jfr.Event {
+
+    @Label("Repeating")
+    boolean repeating;
+
+    TaskEvent() { }
+}
@@ -0,0 +1,38 @@
+package com.github.rccookie.greenfoot.core.metrics;
+
+import com.github.rccookie.util.Console;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Prints metrics to the console. For example, the frame rate can be printed
+ * once per second using
+ * <pre>Metrics.addReporter(new ConsoleReporter("fps"), 1);</pre>
+ */
+public final class ConsoleReporter implements MetricsReporter {
+
+    /**
+     * The names of the metrics to print, or {@code null} to print all.
+     */
+    private final Set<String> names;
+
+    /**
+     * Creates a new console reporter.
+     *
+     * @param names The names of the metrics to print. If none are given,
+     *              all metrics get printed
+     */
+    public ConsoleReporter(String... names) {
+        this.names = names == null || names.length == 0 ? null : new HashSet<>(Arrays.asList(names));
+    }
+
+    @Override
+    public void report(double time, long frame, SortedMap<String, Double> metrics) {
+        for(java.util.Map.Entry<String, Double> metric : metrics.entrySet())
+            if(names == null || names.contains(metric.getKey()))
+                Console.custom(metric.getKey(), metric.getValue());
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.rccookie.greenfoot.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A metric that counts events. Counters may be increased from any thread.
+ *
+ * @see Metrics#counter(String)
+ */
+public final class Counter {
+
+    /**
+     * The name of this counter.
+     */
+    public final String name;
+
+    private final AtomicLong value = new AtomicLong();
+
+
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+
+
+    /**
+     * Increases this counter by one.
+     */
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    /**
+     * Increases this counter by the given amount. A negative amount
+     * decreases the counter, so that it can also be used to count things
+     * that can be removed again.
+     *
+     * @param amount The amount to add
+     */
+    public void add(long amount) {
+        value.addAndGet(amount);
+    }
+
+    /**
+     * Returns the current value of this counter.
+     *
+     * @return The counted value
+     */
+    public long value() {
+        return value.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Counter{" + name + ": " + value() + "}";
+    }
+}
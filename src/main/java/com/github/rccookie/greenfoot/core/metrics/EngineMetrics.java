@@ -0,0 +1,88 @@
+package com.github.rccookie.greenfoot.core.metrics;
+
+import com.github.rccookie.greenfoot.core.Component;
+import com.github.rccookie.greenfoot.core.Core;
+import com.github.rccookie.greenfoot.core.GameObject;
+import com.github.rccookie.greenfoot.core.Map;
+import com.github.rccookie.greenfoot.core.Time;
+
+import java.util.TreeMap;
+
+/**
+ * The metrics filled by the engine itself:
+ * <ul>
+ *     <li>{@code fps}: The stable frame rate</li>
+ *     <li>{@code objects}: The number of objects on the current map</li>
+ *     <li>{@code components.<type>}: The number of components of each type
+ *     on the current map</li>
+ *     <li>{@code frame.time}: Histogram of the time of each frame, in
+ *     milliseconds</li>
+ *     <li>{@code raycasts}, {@code tasks.executed} and {@code collisions.pairs}:
+ *     The total number of rays cast, scheduled tasks run and pairs of
+ *     colliders tested for intersection</li>
+ *     <li>{@code frame.raycasts}, {@code frame.tasks} and
+ *     {@code frame.collisionPairs}: Histograms of the same values per
+ *     frame</li>
+ * </ul>
+ */
+public final class EngineMetrics {
+
+    private EngineMetrics() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static final Counter RAYCASTS = Metrics.counter("raycasts");
+    public static final Counter TASKS = Metrics.counter("tasks.executed");
+    public static final Counter COLLISION_PAIRS = Metrics.counter("collisions.pairs");
+
+    private static final Histogram FRAME_TIME = Metrics.histogram("frame.time");
+    private static final Histogram FRAME_RAYCASTS = Metrics.histogram("frame.raycasts");
+    private static final Histogram FRAME_TASKS = Metrics.histogram("frame.tasks");
+    private static final Histogram FRAME_COLLISION_PAIRS = Metrics.histogram("frame.collisionPairs");
+
+    /**
+     * The values of the counters at the end of the last frame.
+     */
+    private static long lastRaycasts, lastTasks, lastCollisionPairs;
+
+    static {
+        Metrics.gauge("fps", Time::stableFps);
+        Metrics.gauge("objects", () -> {
+            Map map = Core.getMap();
+            return map != null ? map.findAll().size() : 0;
+        });
+        Metrics.gaugeGroup("components", () -> {
+            java.util.Map<String, Integer> counts = new TreeMap<>();
+            Map map = Core.getMap();
+            if(map == null) return counts;
+            for(GameObject object : map.findAll())
+                for(Component component : object.getComponents(null))
+                    counts.merge(component.getClass().getSimpleName(), 1, Integer::sum);
+            return counts;
+        });
+    }
+
+
+
+    /**
+     * Records the values of a frame that just ended. Called by the map
+     * after each frame.
+     *
+     * @param nanos The duration of the frame, in nanoseconds
+     */
+    public static void frameEnded(long nanos) {
+        FRAME_TIME.record(nanos / 1000000d);
+        long raycasts = RAYCASTS.value(), tasks = TASKS.value(), collisionPairs = COLLISION_PAIRS.value();
+        FRAME_RAYCASTS.record(raycasts - lastRaycasts);
+        FRAME_TASKS.record(tasks - lastTasks);
+        FRAME_COLLISION_PAIRS.record(collisionPairs - lastCollisionPairs);
+        lastRaycasts = raycasts;
+        lastTasks = tasks;
+        lastCollisionPairs = collisionPairs;
+    }
+
+    /**
+     * Ensures the engine metrics are registered.
+     */
+    public static void init() { }
+}
@@ -0,0 +1,107 @@
+package com.github.rccookie.greenfoot.core.metrics;
+
+import com.github.rccookie.greenfoot.core.Core;
+import com.github.rccookie.util.Arguments;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Writes metrics into a file, one line per report, either as JSON objects
+ * or as CSV. CSV files start with a header, which is written again whenever
+ * the set of metrics changes. Only available in Java sessions.
+ */
+public final class FileReporter implements MetricsReporter {
+
+    /**
+     * The formats a file reporter can write.
+     */
+    public enum Format {
+        /**
+         * One JSON object per line.
+         */
+        JSON_LINES,
+        /**
+         * Comma separated values with a header line.
+         */
+        CSV
+    }
+
+    private final Writer writer;
+    private final Format format;
+
+    /**
+     * The names written in the last CSV header.
+     */
+    private List<String> header = null;
+
+    /**
+     * Creates a new file reporter that writes to the given file. An existing
+     * file will be overridden.
+     *
+     * @param file The file to write to
+     * @param format The format to write in
+     * @throws UncheckedIOException If the file cannot be opened
+     * @throws UnsupportedOperationException If not running in a Java session
+     */
+    public FileReporter(Path file, Format format) {
+        Arguments.checkNull(file, "file");
+        this.format = Arguments.checkNull(format, "format");
+        if(!Core.getRealSession().isJava())
+            throw new UnsupportedOperationException("Files are not available online");
+        try {
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void report(double time, long frame, SortedMap<String, Double> metrics) {
+        StringBuilder line = new StringBuilder();
+        if(format == Format.JSON_LINES) {
+            line.append("{\"time\":").append(time).append(",\"frame\":").append(frame);
+            for(java.util.Map.Entry<String, Double> metric : metrics.entrySet())
+                line.append(",\"").append(metric.getKey()).append("\":").append(jsonValue(metric.getValue()));
+            line.append('}');
+        }
+        else {
+            List<String> names = new ArrayList<>(metrics.keySet());
+            if(!names.equals(header)) {
+                header = names;
+                line.append("time,frame");
+                for(String name : names) line.append(',').append(name);
+                line.append('\n');
+            }
+            line.append(time).append(',').append(frame);
+            for(Double value : metrics.values()) line.append(',').append(value);
+        }
+        line.append('\n');
+        try {
+            writer.write(line.toString());
+            writer.flush();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String jsonValue(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "null";
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.rccookie.greenfoot.core.metrics;
+
+import java.util.Arrays;
+
+/**
+ * A metric that records the distribution of a value, like the duration of a
+ * frame. The statistics are calculated over the most recent values only, so
+ * that they reflect the current state rather than the whole runtime.
+ * Histograms may be recorded to from any thread.
+ *
+ * @see Metrics#histogram(String)
+ */
+public final class Histogram {
+
+    /**
+     * The default number of recent values the statistics are calculated
+     * over.
+     */
+    public static final int DEFAULT_WINDOW = 256;
+
+    /**
+     * The name of this histogram.
+     */
+    public final String name;
+
+    /**
+     * The most recent values, as ring buffer.
+     */
+    private final double[] values;
+
+    /**
+     * The index to write the next value to.
+     */
+    private int next = 0;
+
+    /**
+     * The total number of values recorded.
+     */
+    private long count = 0;
+
+
+
+    Histogram(String name, int window) {
+        if(window <= 0) throw new IllegalArgumentException("The window must be positive");
+        this.name = name;
+        values = new double[window];
+    }
+
+
+
+    /**
+     * Records the given value.
+     *
+     * @param value The value to record
+     */
+    public synchronized void record(double value) {
+        values[next] = value;
+        next = (next + 1) % values.length;
+        count++;
+    }
+
+    /**
+     * Returns the total number of values recorded by this histogram.
+     *
+     * @return The number of recorded values
+     */
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Writes the statistics of the recent values into the given map, using
+     * the name of this histogram followed by {@code .count}, {@code .mean},
+     * {@code .min}, {@code .p50}, {@code .p90}, {@code .p99} and
+     * {@code .max}. If no value was recorded yet, only the count is written.
+     */
+    void snapshot(java.util.Map<String, Double> out) {
+        double[] recent;
+        long count;
+        synchronized(this) {
+            count = this.count;
+            recent = Arrays.copyOf(values, (int) Math.min(count, values.length));
+        }
+        out.put(name + ".count", (double) count);
+        if(recent.length == 0) return;
+
+        Arrays.sort(recent);
+        double sum = 0;
+        for(double value : recent) sum += value;
+        out.put(name + ".mean", sum / recent.length);
+        out.put(name + ".min", recent[0]);
+        out.put(name + ".p50", percentile(recent, 0.5));
+        out.put(name + ".p90", percentile(recent, 0.9));
+        out.put(name + ".p99", percentile(recent, 0.99));
+        out.put(name + ".max", recent[recent.length - 1]);
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{" + name + ", count: " + count() + "}";
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) (percentile * sorted.length))];
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.rccookie.greenfoot.core.metrics;
+
+import com.github.rccookie.greenfoot.core.Execution;
+import com.github.rccookie.greenfoot.core.Time;
+import com.github.rccookie.util.Arguments;
+
+import java.util.*;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A registry of metrics like counters, gauges and histograms. The engine
+ * fills some metrics automatically, see {@link EngineMetrics}, and custom
+ * metrics can be registered the same way.
+ * <p>The current values can be read at any time using {@link #snapshot()},
+ * or be pushed to reporters in regular intervals using
+ * {@link #addReporter(MetricsReporter, double)}. No reporter is active by
+ * default.
+ */
+public final class Metrics {
+
+    private Metrics() {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final java.util.Map<String, Counter> COUNTERS = new HashMap<>();
+    private static final java.util.Map<String, Histogram> HISTOGRAMS = new HashMap<>();
+    private static final java.util.Map<String, DoubleSupplier> GAUGES = new HashMap<>();
+    private static final java.util.Map<String, Supplier<? extends java.util.Map<String, ? extends Number>>> GAUGE_GROUPS = new HashMap<>();
+
+    /**
+     * The registered reporters, each with the token of its registration. The
+     * repeating task of a registration stops once its token is no longer the
+     * registered one, so removing and adding a reporter again does not leave
+     * the old task running.
+     */
+    private static final java.util.Map<MetricsReporter, Object> REPORTERS = new HashMap<>();
+
+
+
+    /**
+     * Returns the counter with the given name, and creates it if it does not
+     * exist yet.
+     *
+     * @param name The name of the counter
+     * @return The counter with that name
+     */
+    public static Counter counter(String name) {
+        Arguments.checkNull(name, "name");
+        synchronized(COUNTERS) {
+            return COUNTERS.computeIfAbsent(name, Counter::new);
+        }
+    }
+
+    /**
+     * Returns the histogram with the given name, and creates it with the
+     * default window if it does not exist yet.
+     *
+     * @param name The name of the histogram
+     * @return The histogram with that name
+     */
+    public static Histogram histogram(String name) {
+        return histogram(name, Histogram.DEFAULT_WINDOW);
+    }
+
+    /**
+     * Returns the histogram with the given name, and creates it if it does
+     * not exist yet.
+     *
+     * @param name The name of the histogram
+     * @param window The number of recent values to calculate the statistics
+     *               over, if the histogram gets created
+     * @return The histogram with that name
+     */
+    public static Histogram histogram(String name, int window) {
+        Arguments.checkNull(name, "name");
+        synchronized(HISTOGRAMS) {
+            return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram(n, window));
+        }
+    }
+
+    /**
+     * Registers a gauge, a metric whose value is read when needed. An
+     * existing gauge with the same name gets replaced.
+     *
+     * @param name The name of the gauge
+     * @param value Supplies the current value. Called from the thread that
+     *              requests the values
+     */
+    public static void gauge(String name, DoubleSupplier value) {
+        Arguments.checkNull(name, "name");
+        Arguments.checkNull(value, "value");
+        synchronized(GAUGES) {
+            GAUGES.put(name, value);
+        }
+    }
+
+    /**
+     * Registers a group of gauges whose names are only known when the values
+     * are read, like the number of components per type. Each entry of the
+     * supplied map is reported as a gauge named by the prefix, followed by a
+     * dot and the key. An existing group with the same prefix gets replaced.
+     *
+     * @param prefix The prefix of the names of the gauges
+     * @param values Supplies the current values. Called from the thread that
+     *               requests the values
+     */
+    public static void gaugeGroup(String prefix, Supplier<? extends java.util.Map<String, ? extends Number>> values) {
+        Arguments.checkNull(prefix, "prefix");
+        Arguments.checkNull(values, "values");
+        synchronized(GAUGE_GROUPS) {
+            GAUGE_GROUPS.put(prefix, values);
+        }
+    }
+
+    /**
+     * Removes all metrics with the given name, or the gauge group with that
+     * prefix.
+     *
+     * @param name The name of the metric to remove
+     */
+    public static void remove(String name) {
+        synchronized(COUNTERS) { COUNTERS.remove(name); }
+        synchronized(HISTOGRAMS) { HISTOGRAMS.remove(name); }
+        synchronized(GAUGES) { GAUGES.remove(name); }
+        synchronized(GAUGE_GROUPS) { GAUGE_GROUPS.remove(name); }
+    }
+
+
+
+    /**
+     * Returns the current value of all metrics. Histograms contribute
+     * multiple values, see {@link Histogram}.
+     *
+     * @return The value of each metric, sorted by name
+     */
+    public static SortedMap<String, Double> snapshot() {
+        SortedMap<String, Double> values = new TreeMap<>();
+        synchronized(COUNTERS) {
+            for(Counter counter : COUNTERS.values()) values.put(counter.name, (double) counter.value());
+        }
+        List<Histogram> histograms;
+        synchronized(HISTOGRAMS) {
+            histograms = new ArrayList<>(HISTOGRAMS.values());
+        }
+        for(Histogram histogram : histograms) histogram.snapshot(values);
+        List<java.util.Map.Entry<String, DoubleSupplier>> gauges;
+        synchronized(GAUGES) {
+            gauges = new ArrayList<>(GAUGES.entrySet());
+        }
+        for(java.util.Map.Entry<String, DoubleSupplier> gauge : gauges)
+            values.put(gauge.getKey(), gauge.getValue().getAsDouble());
+        List<java.util.Map.Entry<String, Supplier<? extends java.util.Map<String, ? extends Number>>>> groups;
+        synchronized(GAUGE_GROUPS) {
+            groups = new ArrayList<>(GAUGE_GROUPS.entrySet());
+        }
+        for(java.util.Map.Entry<String, Supplier<? extends java.util.Map<String, ? extends Number>>> group : groups)
+            for(java.util.Map.Entry<String, ? extends Number> value : group.getValue().get().entrySet())
+                values.put(group.getKey() + "." + value.getKey(), value.getValue().doubleValue());
+        return values;
+    }
+
+
+
+    /**
+     * Adds a reporter that receives the values of all metrics in the given
+     * interval, in seconds of game time. Reporters run on the simulation
+     * thread.
+     *
+     * @param reporter The reporter to add
+     * @param interval The time between two reports, in seconds
+     */
+    public static void addReporter(MetricsReporter reporter, double interval) {
+        Arguments.checkNull(reporter, "reporter");
+        if(REPORTERS.containsKey(reporter)) return;
+        Object token = new Object();
+        REPORTERS.put(reporter, token);
+        Execution.repeat(() -> {
+            if(REPORTERS.get(reporter) != token) return false;
+            reporter.report(Time.seconds(), Time.frameIndex(), snapshot());
+            return true;
+        }, interval, interval);
+    }
+
+    /**
+     * Removes and closes the given reporter.
+     *
+     * @param reporter The reporter to remove
+     * @return Weather the reporter was added before
+     */
+    public static boolean removeReporter(MetricsReporter reporter) {
+        if(REPORTERS.remove(reporter) == null) return false;
+        reporter.close();
+        return true;
+    }
+}
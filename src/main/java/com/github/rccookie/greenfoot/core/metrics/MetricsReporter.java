@@ -0,0 +1,26 @@
+package com.github.rccookie.greenfoot.core.metrics;
+
+import java.util.SortedMap;
+
+/**
+ * Receives the values of all metrics in regular intervals.
+ *
+ * @see Metrics#addReporter(MetricsReporter, double)
+ */
+@FunctionalInterface
+public interface MetricsReporter {
+
+    /**
+     * Reports the given values.
+     *
+     * @param time The time of the report, as {@link com.github.rccookie.greenfoot.core.Time#seconds()}
+     * @param frame The index of the frame of the report
+     * @param metrics The value of each metric, sorted by name
+     */
+    void report(double time, long frame, SortedMap<String, Double> metrics);
+
+    /**
+     * Called when this reporter gets removed, to release any resources.
+     */
+    default void close() { }
+}
@@ -0,0 +1,271 @@
+package com.github.rccookie.greenfoot.core.raycast;
+
+import com.github.rccookie.geometry.Border;
+import com.github.rccookie.geometry.Circle;
+import com.github.rccookie.geometry.Edge;
+import com.github.rccookie.geometry.Vector;
+import com.github.rccookie.greenfoot.core.GameObject;
+import com.github.rccookie.greenfoot.core.Map;
+import com.github.rccookie.greenfoot.core.Time;
+import com.github.rccookie.greenfoot.core.components.CircleCollider;
+import com.github.rccookie.greenfoot.core.components.Collider;
+import com.github.rccookie.greenfoot.core.components.ColliderTree;
+import com.github.rccookie.util.Arguments;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * An immutable copy of the borders of all colliders on a map at a certain
+ * frame. Once captured, a snapshot does not access the colliders or the
+ * transform of any object anymore, so any number of threads can raycast
+ * against it without locks while the map keeps getting updated.
+ * <p>Snapshots get published by a map every frame if enabled using
+ * {@link Map#setPublishBorderSnapshots(boolean)}, and are used for raycasts
+ * by setting them with {@link RaycastBuilder#setSnapshot(BorderSnapshot)}.
+ */
+public final class BorderSnapshot {
+
+    /**
+     * The map this snapshot was captured from.
+     */
+    public final Map map;
+
+    /**
+     * The frame in which this snapshot was captured.
+     */
+    public final long frame;
+
+    /**
+     * The captured objects.
+     */
+    private final GameObject[] objects;
+
+    /**
+     * The index of each captured object.
+     */
+    private final IdentityHashMap<GameObject, Integer> indices;
+
+    /**
+     * The index of the first edge of each object in {@link #edges}, plus the
+     * total number of edges at the end.
+     */
+    private final int[] edgeStart;
+
+    /**
+     * The edges of all objects as {@code x1, y1, x2, y2}.
+     */
+    private final double[] edges;
+
+    /**
+     * The circle of each object as {@code x, y, radius}, with a radius of
+     * {@link Double#NaN} if the object is not a circle.
+     */
+    private final double[] circles;
+
+    /**
+     * A tree over the bounds of all captured objects.
+     */
+    private final ColliderTree tree;
+
+
+
+    private BorderSnapshot(Map map) {
+        this.map = map;
+        frame = Time.frameIndex();
+
+        List<GameObject> objects = new ArrayList<>();
+        List<double[]> objectEdges = new ArrayList<>(), objectCircles = new ArrayList<>();
+        List<GameObject> candidates = new ArrayList<>(map.findAll());
+        if(map.isBounded()) candidates.add(map);
+
+        int edgeCount = 0;
+        for(GameObject object : candidates) {
+            Collider collider = object.getComponent(Collider.class);
+            if(collider == null) continue;
+            double[] capturedEdges = new double[0], capturedCircle = null;
+            if(collider instanceof CircleCollider) {
+                Vector location = object.location();
+                capturedCircle = new double[] { location.x(), location.y(), ((CircleCollider) collider).getRadius() };
+            }
+            else {
+                Border[] borders = collider.getAllBorders();
+                if(borders == null) continue;
+                capturedEdges = new double[4 * borders.length];
+                int count = 0;
+                for(Border border : borders) {
+                    if(!(border instanceof Edge)) continue;
+                    Edge edge = (Edge) border;
+                    capturedEdges[4 * count] = edge.start.x();
+                    capturedEdges[4 * count + 1] = edge.start.y();
+                    capturedEdges[4 * count + 2] = edge.end.x();
+                    capturedEdges[4 * count + 3] = edge.end.y();
+                    count++;
+                }
+                capturedEdges = Arrays.copyOf(capturedEdges, 4 * count);
+                edgeCount += count;
+            }
+            objects.add(object);
+            objectEdges.add(capturedEdges);
+            objectCircles.add(capturedCircle);
+        }
+
+        this.objects = objects.toArray(new GameObject[0]);
+        indices = new IdentityHashMap<>(this.objects.length);
+        edgeStart = new int[this.objects.length + 1];
+        edgeStart[this.objects.length] = edgeCount;
+        edges = new double[4 * edgeCount];
+        circles = new double[3 * this.objects.length];
+        for(int i = 0, edge = 0; i < this.objects.length; i++) {
+            indices.put(this.objects[i], i);
+            double[] captured = objectEdges.get(i), circle = objectCircles.get(i);
+            edgeStart[i] = edge;
+            System.arraycopy(captured, 0, edges, 4 * edge, captured.length);
+            edge += captured.length / 4;
+            if(circle != null) System.arraycopy(circle, 0, circles, 3 * i, 3);
+            else circles[3 * i + 2] = Double.NaN;
+        }
+        tree = ColliderTree.build(objects);
+    }
+
+
+
+    /**
+     * Returns the number of objects in this snapshot.
+     *
+     * @return The number of captured objects
+     */
+    public int size() {
+        return objects.length;
+    }
+
+    /**
+     * Returns weather the given object was captured in this snapshot.
+     *
+     * @param object The object to check
+     * @return Weather the object is part of this snapshot
+     */
+    public boolean contains(GameObject object) {
+        return indices.containsKey(object);
+    }
+
+    @Override
+    public String toString() {
+        return "BorderSnapshot{frame: " + frame + ", objects: " + objects.length + ", edges: " + edges.length / 4 + "}";
+    }
+
+
+
+    /**
+     * Finds the closest border hit by the given ray. Edges are only hit from
+     * their front side, and circles only from the outside, like when
+     * raycasting against the live colliders.
+     *
+     * @param x The x coordinate of the ray's origin
+     * @param y The y coordinate of the ray's origin
+     * @param dx The x component of the normalized ray direction
+     * @param dy The y component of the normalized ray direction
+     * @param maxDistance The maximum length of the ray
+     * @param filter The objects that may be hit. Called from the raycasting
+     *               thread, so it should not depend on mutable state of the
+     *               objects
+     * @param hit Receives the distance, the hit location, the surface normal
+     *            and the index of the edge hit or {@code -1} for circles, in
+     *            that order, if there is a hit
+     * @return The index of the object hit, or {@code -1}
+     */
+    int raycast(double x, double y, double dx, double dy, double maxDistance, Predicate<GameObject> filter, double[] hit) {
+        Arguments.checkNull(filter, "filter");
+        int[] best = { -1 };
+        double distance = tree.raycast(x, y, dx, dy, maxDistance, (object, max) -> {
+            if(!filter.test(object)) return max;
+            int index = indices.get(object);
+            double t = Double.isNaN(circles[3 * index + 2]) ?
+                    raycastEdges(x, y, dx, dy, max, edgeStart[index], edgeStart[index + 1], hit) :
+                    raycastCircle(x, y, dx, dy, max, 3 * index, hit);
+            if(t >= max) return max;
+            best[0] = index;
+            return t;
+        });
+        if(best[0] == -1) return -1;
+        hit[0] = distance;
+        hit[1] = x + dx * distance;
+        hit[2] = y + dy * distance;
+        return best[0];
+    }
+
+    /**
+     * Returns the captured object with the given index.
+     */
+    GameObject object(int index) {
+        return objects[index];
+    }
+
+    /**
+     * Returns all captured objects, indexed like in {@link #raycast(double, double, double, double, double, Predicate, double[])}.
+     * The returned array must not be modified.
+     */
+    GameObject[] objects() {
+        return objects;
+    }
+
+    /**
+     * Creates a new border equal to the given captured edge, or to the
+     * circle of the given object if the edge index is {@code -1}.
+     */
+    Border border(int object, int edge) {
+        if(edge == -1) return new Circle(Vector.of(circles[3 * object], circles[3 * object + 1]), circles[3 * object + 2], 0, false);
+        return new Edge(Vector.of(edges[4 * edge], edges[4 * edge + 1]), Vector.of(edges[4 * edge + 2], edges[4 * edge + 3]));
+    }
+
+    private double raycastEdges(double x, double y, double dx, double dy, double maxDistance, int from, int to, double[] hit) {
+        for(int i = from; i < to; i++) {
+            double ax = edges[4 * i], ay = edges[4 * i + 1];
+            double ex = edges[4 * i + 2] - ax, ey = edges[4 * i + 3] - ay;
+            // Only hit from the front side, which is on the right of the edge
+            if((x - ax) * ey - (y - ay) * ex <= 0) continue;
+            double denominator = dx * ey - dy * ex;
+            if(denominator == 0) continue;
+            double t = ((ax - x) * ey - (ay - y) * ex) / denominator;
+            double u = ((ax - x) * dy - (ay - y) * dx) / denominator;
+            if(t < 0 || t >= maxDistance || u < 0 || u > 1) continue;
+            double length = Math.sqrt(ex * ex + ey * ey);
+            maxDistance = t;
+            hit[3] = ey / length;
+            hit[4] = -ex / length;
+            hit[5] = i;
+        }
+        return maxDistance;
+    }
+
+    private double raycastCircle(double x, double y, double dx, double dy, double maxDistance, int circle, double[] hit) {
+        double cx = circles[circle] - x, cy = circles[circle + 1] - y, r = circles[circle + 2];
+        double along = cx * dx + cy * dy, sqrDist = cx * cx + cy * cy;
+        if(sqrDist <= r * r) return maxDistance;
+        double discriminant = along * along - sqrDist + r * r;
+        if(discriminant < 0) return maxDistance;
+        double t = along - Math.sqrt(discriminant);
+        if(t < 0 || t >= maxDistance || r == 0) return maxDistance;
+        hit[3] = (dx * t - cx) / r;
+        hit[4] = (dy * t - cy) / r;
+        hit[5] = -1;
+        return t;
+    }
+
+
+
+    /**
+     * Captures the current borders of all colliders on the given map. This
+     * reads the state of all objects, so it has to be called from the thread
+     * that updates the map.
+     *
+     * @param map The map to capture
+     * @return A new snapshot of the map's borders
+     */
+    public static BorderSnapshot capture(Map map) {
+        return new BorderSnapshot(Arguments.checkNull(map, "map"));
+    }
+}
@@ -13,6 +13,18 @@ import java.util.Objects;
 
 public final class Raycast {
 
+    /**
+     * Weather the border caches of colliders should be synchronized so that
+     * raycasts can be calculated from multiple threads. Every border lookup
+     * then takes a lock, and the calculated borders still depend on objects
+     * that may be modified concurrently.
+     *
+     * @deprecated Publish border snapshots using
+     *             {@link Map#setPublishBorderSnapshots(boolean)} and raycast
+     *             against them using {@link RaycastBuilder#setSnapshot(BorderSnapshot)}
+     *             instead, which does not need any locks
+     */
+    @Deprecated
     public static boolean THREADSAFE = false;
 
     /**
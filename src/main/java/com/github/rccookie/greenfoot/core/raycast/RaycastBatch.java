@@ -0,0 +1,175 @@
+package com.github.rccookie.greenfoot.core.raycast;
+
+import com.github.rccookie.geometry.Raycast.Raycast2D;
+import com.github.rccookie.geometry.Vector;
+import com.github.rccookie.greenfoot.core.GameObject;
+
+/**
+ * The results of a batch of raycasts calculated by
+ * {@link RaycastBuilder#calculateAll(Vector[], Vector[])}. The results are
+ * stored in primitive arrays and can be read by the index of the ray
+ * without creating a {@link Raycast} instance per ray.
+ */
+public final class RaycastBatch {
+
+    /**
+     * The candidate objects of the batch, indexed by {@link #hits}.
+     */
+    private final GameObject[] objects;
+
+    /**
+     * The index of the object hit by each ray, or {@code -1}.
+     */
+    private final int[] hits;
+
+    /**
+     * The length of each ray until the hit.
+     */
+    private final double[] lengths;
+
+    /**
+     * The coordinates of each ray's root and hit location.
+     */
+    private final double[] rootX, rootY, hitX, hitY;
+
+
+
+    RaycastBatch(int size, GameObject[] objects) {
+        this.objects = objects;
+        hits = new int[size];
+        lengths = new double[size];
+        rootX = new double[size];
+        rootY = new double[size];
+        hitX = new double[size];
+        hitY = new double[size];
+    }
+
+
+
+    /**
+     * Stores the result of a single ray. Rays write to disjoint indices, so
+     * this may be called concurrently for different indices.
+     */
+    void set(int index, Raycast2D raw, int hit) {
+        hits[index] = hit;
+        lengths[index] = raw.length();
+        rootX[index] = raw.ray.root.x();
+        rootY[index] = raw.ray.root.y();
+        if(hit != -1 && raw.hitLoc != null) {
+            hitX[index] = raw.hitLoc.x();
+            hitY[index] = raw.hitLoc.y();
+        }
+        else hitX[index] = hitY[index] = Double.NaN;
+    }
+
+    /**
+     * Stores the result of a single ray given by its coordinates.
+     */
+    void set(int index, double rootX, double rootY, double length, double hitX, double hitY, int hit) {
+        hits[index] = hit;
+        lengths[index] = length;
+        this.rootX[index] = rootX;
+        this.rootY[index] = rootY;
+        this.hitX[index] = hitX;
+        this.hitY[index] = hitY;
+    }
+
+
+
+    /**
+     * Returns the number of rays in this batch.
+     *
+     * @return The number of rays
+     */
+    public int size() {
+        return hits.length;
+    }
+
+    /**
+     * Returns weather the ray with the given index hit anything.
+     *
+     * @param index The index of the ray
+     * @return Weather the ray hit an object
+     */
+    public boolean collided(int index) {
+        return hits[index] != -1;
+    }
+
+    /**
+     * Returns the object hit by the ray with the given index.
+     *
+     * @param index The index of the ray
+     * @return The object hit, or {@code null} if the ray did not hit anything
+     */
+    public GameObject gameObject(int index) {
+        int hit = hits[index];
+        return hit != -1 ? objects[hit] : null;
+    }
+
+    /**
+     * Returns the length of the ray with the given index from its root until
+     * the point of intersection. If there was no hit this is the maximum
+     * length of the ray.
+     *
+     * @param index The index of the ray
+     * @return The length of the ray
+     */
+    public double length(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Returns the x coordinate of the root of the ray with the given index.
+     *
+     * @param index The index of the ray
+     * @return The x coordinate of the ray's root
+     */
+    public double rootX(int index) {
+        return rootX[index];
+    }
+
+    /**
+     * Returns the y coordinate of the root of the ray with the given index.
+     *
+     * @param index The index of the ray
+     * @return The y coordinate of the ray's root
+     */
+    public double rootY(int index) {
+        return rootY[index];
+    }
+
+    /**
+     * Returns the x coordinate of the location where the ray with the given
+     * index hit.
+     *
+     * @param index The index of the ray
+     * @return The x coordinate of the hit, or {@link Double#NaN} if the ray
+     *         did not hit anything
+     */
+    public double x(int index) {
+        return hitX[index];
+    }
+
+    /**
+     * Returns the y coordinate of the location where the ray with the given
+     * index hit.
+     *
+     * @param index The index of the ray
+     * @return The y coordinate of the hit, or {@link Double#NaN} if the ray
+     *         did not hit anything
+     */
+    public double y(int index) {
+        return hitY[index];
+    }
+
+    /**
+     * Returns the location where the ray with the given index hit.
+     *
+     * @param index The index of the ray
+     * @return A new vector with the location of the hit, or {@code null} if
+     *         the ray did not hit anything
+     */
+    public Vector location(int index) {
+        return collided(index) ? Vector.of(hitX[index], hitY[index]) : null;
+    }
+}
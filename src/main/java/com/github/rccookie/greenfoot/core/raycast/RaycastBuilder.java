@@ -1,21 +1,41 @@
 package com.github.rccookie.greenfoot.core.raycast;
 
 import com.github.rccookie.geometry.Border;
+import com.github.rccookie.geometry.Edge;
+import com.github.rccookie.geometry.Raycast.Raycast2D;
 import com.github.rccookie.geometry.Vector;
 import com.github.rccookie.geometry.Vector2D;
 import com.github.rccookie.greenfoot.core.Core;
+import com.github.rccookie.greenfoot.core.DefaultCollider;
 import com.github.rccookie.greenfoot.core.GameObject;
 import com.github.rccookie.greenfoot.core.Map;
+import com.github.rccookie.greenfoot.core.components.CircleCollider;
 import com.github.rccookie.greenfoot.core.components.Collider;
+import com.github.rccookie.greenfoot.core.components.ColliderTree;
+import com.github.rccookie.greenfoot.core.jfr.EngineEvents;
+import com.github.rccookie.greenfoot.core.jfr.RaycastEvent;
+import com.github.rccookie.greenfoot.core.metrics.EngineMetrics;
 import com.github.rccookie.greenfoot.java.util.Collections;
 import com.github.rccookie.util.Arguments;
 
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public final class RaycastBuilder {
 
+    /**
+     * The minimum number of rays in a batch to evaluate them in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    /**
+     * The number of edges used to approximate circles in visibility
+     * calculations.
+     */
+    private static final int CIRCLE_SEGMENTS = 32;
+
     private Vector origin = Vector.ZERO;
     private Vector direction = Vector.RIGHT;
     private double maxDistance = Double.POSITIVE_INFINITY;
@@ -27,6 +47,15 @@ public final class RaycastBuilder {
     private Collection<GameObject> objects = null;
     private Predicate<GameObject> filter = g -> true;
     private GameObject[] ignored = new GameObject[0];
+    private boolean gridTraversal = false;
+    private BorderSnapshot snapshot = null;
+
+    /**
+     * Buffers reused by {@link #calculate(RaycastHit)}.
+     */
+    private final PrimitiveVisitor visitor = new PrimitiveVisitor();
+    private final Predicate<GameObject> snapshotFilter = this::acceptSnapshot;
+    private final double[] snapshotHit = new double[6];
 
     public RaycastBuilder setOrigin(Vector origin) {
         this.origin = Arguments.checkNull(origin);
@@ -98,18 +127,499 @@ public final class RaycastBuilder {
         return this;
     }
 
+    /**
+     * Sets weather the ray should walk the cell grid of the static colliders
+     * of the map instead of traversing the tree over them. Only the static
+     * objects in the cells the ray passes through get tested, and the
+     * traversal stops at the first hit, so the cost grows with the length of
+     * the ray rather than with the number of static objects. Dynamic
+     * colliders are still tested using their tree. This is best suited for
+     * tile maps with a large cell size, see {@link Map#getStaticColliderGrid()}
+     * for the requirements on the colliders. Has no effect if the objects to
+     * test were set explicitly.
+     *
+     * @param gridTraversal Weather to use grid traversal
+     * @return This builder
+     * @see Map#getStaticColliderGrid()
+     */
+    public RaycastBuilder setGridTraversal(boolean gridTraversal) {
+        this.gridTraversal = gridTraversal;
+        return this;
+    }
+
+    /**
+     * Sets the border snapshot to raycast against. If set, rays are tested
+     * against the borders captured in the snapshot instead of the live
+     * colliders, which does not read or modify any object and allows to
+     * calculate raycasts from any thread while the map keeps being updated.
+     * The map of this builder is ignored in that case.
+     * <p>When raycasting from a different thread, the origin should be set
+     * to a copy of the location using {@link #setOrigin(Vector)}, and the
+     * filter should not depend on mutable state of the objects.
+     *
+     * @param snapshot The snapshot to use, or {@code null} to use the live
+     *                 colliders
+     * @return This builder
+     * @see Map#getBorderSnapshot()
+     */
+    public RaycastBuilder setSnapshot(BorderSnapshot snapshot) {
+        this.snapshot = snapshot;
+        return this;
+    }
+
     public Raycast calculate() {
+        RaycastEvent event = EngineEvents.beginRaycast();
+        if(snapshot != null) {
+            Raycast raycast = calculateSnapshot();
+            EngineEvents.endRaycast(event, 1, snapshot.size());
+            EngineMetrics.RAYCASTS.increment();
+            return raycast;
+        }
+        if(gameObject != null) {
+            map = gameObject.getMap();
+            Objects.requireNonNull(map, "The gameobject that is the source of the ray must be in a world");
+        }
+
+        com.github.rccookie.geometry.Ray ray = new com.github.rccookie.geometry.Ray(origin, direction);
+        double length = Math.sqrt(direction.x() * direction.x() + direction.y() * direction.y());
+        if(length == 0) {
+            Raycast raycast = calculateLinear(ray);
+            EngineEvents.endRaycast(event, 1, -1);
+            EngineMetrics.RAYCASTS.increment();
+            return raycast;
+        }
+
+        GameObject object = traverse(origin, direction.x() / length, direction.y() / length);
+        EngineEvents.endRaycast(event, 1, visitor.tested);
+        EngineMetrics.RAYCASTS.increment();
+        visitor.reset();
+        if(object == null)
+            return new Raycast(null, gameObject, com.github.rccookie.geometry.Raycast.raycast2D(ray, maxDistance, java.util.Collections.emptySet()));
+
+        // Only the borders of the object hit are created, to get the same raw result as before
+        Border[] borders = object.getComponent(Collider.class).getBorders(origin);
+        Raycast2D raw = com.github.rccookie.geometry.Raycast.raycast2D(ray, maxDistance, new HashSet<>(Arrays.asList(borders)));
+        return new Raycast(raw.hitBorder != null ? object : null, gameObject, raw);
+    }
+
+    /**
+     * Calculates the raycast like {@link #calculate()}, but stores the result
+     * in the given buffer instead of creating a new {@link Raycast}. Together
+     * with reusing this builder and the buffer across frames, raycasting
+     * against the colliders of a map does not create any garbage, as long as
+     * the colliders support direct intersection. Raycasting against a
+     * snapshot still allocates a little per ray. If this builder has a
+     * source, the ray starts at
+     * the current location of the source.
+     * <p>Colliders are intersected using
+     * {@link Collider#raycast(double, double, double, double, double, double[])},
+     * colliders not supporting that are tested using their borders. This
+     * builder keeps internal buffers for the calculation, so it must not be
+     * used by multiple threads at the same time.
+     *
+     * @param hit The buffer to store the result in
+     * @return Weather the ray hit anything
+     */
+    public boolean calculate(RaycastHit hit) {
+        Arguments.checkNull(hit, "hit");
+        Vector origin = gameObject != null ? gameObject.location() : this.origin;
+        double ox = origin.x(), oy = origin.y();
+        double length = Math.sqrt(direction.x() * direction.x() + direction.y() * direction.y());
+        if(length == 0) {
+            hit.setMiss(ox, oy, maxDistance);
+            return false;
+        }
+        double dx = direction.x() / length, dy = direction.y() / length;
+
+        RaycastEvent event = EngineEvents.beginRaycast();
+        if(snapshot != null) {
+            int index = snapshot.raycast(ox, oy, dx, dy, maxDistance, snapshotFilter, snapshotHit);
+            EngineEvents.endRaycast(event, 1, snapshot.size());
+            EngineMetrics.RAYCASTS.increment();
+            if(index == -1) hit.setMiss(ox, oy, maxDistance);
+            else hit.setHit(snapshot.object(index), ox, oy, snapshotHit[0], snapshotHit[1], snapshotHit[2], snapshotHit[3], snapshotHit[4]);
+            return index != -1;
+        }
+        if(gameObject != null) {
+            map = gameObject.getMap();
+            Objects.requireNonNull(map, "The gameobject that is the source of the ray must be in a world");
+        }
+
+        GameObject object = traverse(origin, dx, dy);
+        EngineEvents.endRaycast(event, 1, visitor.tested);
+        EngineMetrics.RAYCASTS.increment();
+        if(object == null) hit.setMiss(ox, oy, maxDistance);
+        else hit.setHit(object, ox, oy, visitor.distance, ox + dx * visitor.distance, oy + dy * visitor.distance, visitor.normalX, visitor.normalY);
+        visitor.reset();
+        return object != null;
+    }
+
+    /**
+     * Finds the closest object hit by the ray using the colliders of the
+     * map, or the explicitly set objects. The details of the hit are left in
+     * {@link #visitor}.
+     *
+     * @return The object hit, or {@code null}
+     */
+    private GameObject traverse(Vector origin, double dx, double dy) {
+        double ox = origin.x(), oy = origin.y();
+        PrimitiveVisitor visitor = this.visitor;
+        visitor.start(origin, ox, oy, dx, dy);
+        double max = maxDistance;
+        if(map.isBounded() && acceptCandidate(map)) max = visitor.test(map, max);
+        if(this.objects != null) {
+            for(GameObject object : this.objects)
+                if(acceptCandidate(object)) max = visitor.test(object, max);
+            return visitor.object;
+        }
+
+        // Colliders that changed since the trees were built are checked separately
+        Set<GameObject> modified = map.getModifiedColliders();
+        if(!modified.isEmpty()) for(GameObject object : modified)
+            if(accept(object)) max = visitor.test(object, max);
+
+        visitor.modified = modified;
+        max = map.getDynamicColliders().raycast(ox, oy, dx, dy, max, visitor, visitor.buffer);
+        visitor.modified = null;
+        if(gridTraversal) map.getStaticColliderGrid().raycast(ox, oy, dx, dy, max, visitor, visitor.buffer);
+        else map.getStaticColliders().raycast(ox, oy, dx, dy, max, visitor, visitor.buffer);
+        return visitor.object;
+    }
+
+    /**
+     * Calculates one raycast for each of the given directions, starting from
+     * the origin of this builder. All other settings of this builder apply to
+     * every ray.
+     *
+     * @param directions The directions of the rays
+     * @return The results of the rays, in the order of the directions
+     * @see #calculateAll(Vector[], Vector[])
+     */
+    public RaycastBatch calculateAll(Vector... directions) {
+        if(gameObject != null) Objects.requireNonNull(gameObject.getMap(), "The gameobject that is the source of the ray must be in a world");
+        return calculateAll(new Vector[] { gameObject != null ? gameObject.location() : origin }, directions);
+    }
+
+    /**
+     * Calculates one raycast for each of the given directions. Either a single
+     * origin is given which is shared by all rays, or one origin per direction.
+     * All other settings of this builder apply to every ray, the origin and
+     * direction of this builder are ignored.
+     * <p>The candidate objects and their borders are collected once per
+     * distinct origin, after which the rays are evaluated in parallel. This is
+     * much faster than calculating the rays one by one, for example for
+     * vision cones or sensors that cast many rays from one location.
+     *
+     * @param origins The origins of the rays
+     * @param directions The directions of the rays
+     * @return The results of the rays, in the order of the directions
+     */
+    public RaycastBatch calculateAll(Vector[] origins, Vector[] directions) {
+        Arguments.checkNull(origins, "origins");
+        Arguments.checkNull(directions, "directions");
+        if(origins.length != 1 && origins.length != directions.length)
+            throw new IllegalArgumentException("Either one origin or one origin per direction is required");
+        RaycastEvent event = EngineEvents.beginRaycast();
+        if(snapshot != null) {
+            RaycastBatch batch = calculateAllSnapshot(origins, directions);
+            EngineEvents.endRaycast(event, directions.length, snapshot.size());
+            EngineMetrics.RAYCASTS.add(directions.length);
+            return batch;
+        }
+        if(gameObject != null) {
+            map = gameObject.getMap();
+            Objects.requireNonNull(map, "The gameobject that is the source of the ray must be in a world");
+        }
+
+        // Collect the candidates once, independent of the origin
+        Collection<?> all = this.objects != null ? this.objects : map.findAll(type);
+        List<GameObject> candidates = new ArrayList<>(all.size() + 1);
+        for(Object o : all) if(acceptCandidate((GameObject) o)) candidates.add((GameObject) o);
+        if(this.objects == null && map.isBounded() && acceptCandidate(map)) candidates.add(map);
+        GameObject[] candidateArray = candidates.toArray(new GameObject[0]);
+
+        // Collect the borders once per distinct origin. Colliders are not safe to
+        // be used concurrently, so this has to happen before the parallel part
+        java.util.Map<Vector, Integer> originIndices = new HashMap<>();
+        List<java.util.Map<Border, Integer>> originBorders = new ArrayList<>();
+        int[] rayOrigins = new int[origins.length];
+        for(int i = 0; i < origins.length; i++) {
+            Vector origin = Arguments.checkNull(origins[i], "origin");
+            Integer index = originIndices.get(origin);
+            if(index == null) {
+                originIndices.put(origin, index = originBorders.size());
+                java.util.Map<Border, Integer> borders = new IdentityHashMap<>();
+                for(int j = 0; j < candidateArray.length; j++) {
+                    GameObject candidate = candidateArray[j];
+                    if(candidate != map && !inRange(candidate, origin, maxDistance)) continue;
+                    Collider collider = candidate.getComponent(Collider.class);
+                    if(collider != null) for(Border border : collider.getBorders(origin)) borders.put(border, j);
+                }
+                originBorders.add(borders);
+            }
+            rayOrigins[i] = index;
+        }
+
+        RaycastBatch batch = new RaycastBatch(directions.length, candidateArray);
+        IntStream rays = IntStream.range(0, directions.length);
+        if(directions.length >= PARALLEL_THRESHOLD && Core.getRealSession().isJava()) rays = rays.parallel();
+        rays.forEach(i -> {
+            int originIndex = origins.length == 1 ? 0 : i;
+            java.util.Map<Border, Integer> borders = originBorders.get(rayOrigins[originIndex]);
+            com.github.rccookie.geometry.Ray ray = new com.github.rccookie.geometry.Ray(origins[originIndex], Arguments.checkNull(directions[i], "direction"));
+            Raycast2D raw = com.github.rccookie.geometry.Raycast.raycast2D(ray, maxDistance, borders.keySet());
+            Integer hit = raw.hitBorder != null ? borders.get(raw.hitBorder) : null;
+            batch.set(i, raw, hit != null ? hit : -1);
+        });
+        EngineEvents.endRaycast(event, directions.length, candidateArray.length);
+        EngineMetrics.RAYCASTS.add(directions.length);
+        return batch;
+    }
+
+    /**
+     * Calculates the area visible from the origin of this builder. Instead of
+     * casting many rays, all edges facing the origin are swept once by their
+     * angle around the origin. Edges that cross each other, for example edges
+     * reaching past the radius or edges of overlapping colliders, are split
+     * at their intersections first. The maximum distance of this builder is
+     * used as radius of the visible area, the direction is ignored. All other
+     * settings apply like for a single ray.
+     * <p>Circles and the radius are approximated by regular polygons. If the
+     * radius is infinite and the map is not bounded, the visible area is
+     * limited to the map.
+     *
+     * @return The area visible from the origin
+     */
+    public VisibilityPolygon calculateVisibility() {
+        if(gameObject != null) {
+            map = gameObject.getMap();
+            Objects.requireNonNull(map, "The gameobject that is the source of the ray must be in a world");
+        }
+        Vector origin = gameObject != null ? gameObject.location() : this.origin;
+        double ox = origin.x(), oy = origin.y();
+
+        Collection<?> all = this.objects != null ? this.objects : map.findAll(type);
+        List<GameObject> candidates = new ArrayList<>(all.size() + 1);
+        for(Object o : all)
+            if(acceptCandidate((GameObject) o) && inRange((GameObject) o, origin, maxDistance)) candidates.add((GameObject) o);
+        if(map.isBounded() && acceptCandidate(map)) candidates.add(map);
+
+        double[] segments = new double[64];
+        int count = 0;
+        for(GameObject candidate : candidates) {
+            Collider collider = candidate.getComponent(Collider.class);
+            if(collider == null) continue;
+            if(collider instanceof CircleCollider) {
+                double radius = ((CircleCollider) collider).getRadius();
+                segments = ensureCapacity(segments, count + CIRCLE_SEGMENTS);
+                count = addPolygon(segments, count, candidate.location().x(), candidate.location().y(), radius);
+                continue;
+            }
+            for(Border border : collider.getBorders(origin)) {
+                if(!(border instanceof Edge)) continue;
+                Edge edge = (Edge) border;
+                segments = ensureCapacity(segments, count + 1);
+                segments[4 * count] = edge.start.x();
+                segments[4 * count + 1] = edge.start.y();
+                segments[4 * count + 2] = edge.end.x();
+                segments[4 * count + 3] = edge.end.y();
+                count++;
+            }
+        }
+
+        // Enclose the origin so that every direction hits something
+        segments = ensureCapacity(segments, count + Math.max(4, CIRCLE_SEGMENTS));
+        if(Double.isFinite(maxDistance) && maxDistance > 0)
+            count = addPolygon(segments, count, ox, oy, maxDistance);
+        else {
+            double minX = Math.min(0, ox) - 1, minY = Math.min(0, oy) - 1;
+            double maxX = Math.max(map.getWidth(), ox) + 1, maxY = Math.max(map.getHeight(), oy) + 1;
+            double[] corners = { minX, minY, maxX, minY, maxX, maxY, minX, maxY };
+            for(int i = 0; i < 4; i++, count++)
+                for(int j = 0; j < 4; j++) segments[4 * count + j] = corners[(2 * i + j) % 8];
+        }
+
+        return VisibilityPolygon.calculate(origin, segments, count);
+    }
+
+    /**
+     * Adds the edges of a regular polygon around the given circle, with its
+     * edges touching the circle.
+     *
+     * @return The new number of segments
+     */
+    private static int addPolygon(double[] segments, int count, double x, double y, double radius) {
+        double outer = radius / Math.cos(Math.PI / CIRCLE_SEGMENTS);
+        for(int i = 0; i < CIRCLE_SEGMENTS; i++, count++) {
+            double a = 2 * Math.PI * i / CIRCLE_SEGMENTS, b = 2 * Math.PI * (i + 1) / CIRCLE_SEGMENTS;
+            segments[4 * count] = x + outer * Math.cos(a);
+            segments[4 * count + 1] = y + outer * Math.sin(a);
+            segments[4 * count + 2] = x + outer * Math.cos(b);
+            segments[4 * count + 3] = y + outer * Math.sin(b);
+        }
+        return count;
+    }
+
+    private static double[] ensureCapacity(double[] segments, int count) {
+        if(4 * count <= segments.length) return segments;
+        return Arrays.copyOf(segments, Math.max(4 * count, 2 * segments.length));
+    }
+
+    /**
+     * Sweeps a circle with the given radius along the ray and returns the
+     * first object it touches. All settings of this builder apply like for a
+     * single ray, with the origin being the start location of the circle's
+     * center.
+     *
+     * @param radius The radius of the circle
+     * @return The result of the sweep
+     */
+    public ShapeCast calculateCircleCast(double radius) {
+        if(radius < 0) throw new IllegalArgumentException("The radius must not be negative");
+        Vector origin = prepareSweep();
+        return sweep(ShapeSweep.circle(origin, direction, radius, maxDistance), origin);
+    }
+
+    /**
+     * Sweeps a box with the given size along the ray and returns the first
+     * object it touches. The box is rotated like the source of this builder,
+     * or axis aligned if there is no source.
+     *
+     * @param width The width of the box
+     * @param height The height of the box
+     * @return The result of the sweep
+     * @see #calculateBoxCast(double, double, double)
+     */
+    public ShapeCast calculateBoxCast(double width, double height) {
+        return calculateBoxCast(width, height, gameObject != null ? gameObject.rotation() : 0);
+    }
+
+    /**
+     * Sweeps a box with the given size and rotation along the ray and returns
+     * the first object it touches. The box keeps its rotation while moving.
+     * All settings of this builder apply like for a single ray, with the
+     * origin being the start location of the box's center.
+     *
+     * @param width The width of the box
+     * @param height The height of the box
+     * @param rotation The rotation of the box, in degrees
+     * @return The result of the sweep
+     */
+    public ShapeCast calculateBoxCast(double width, double height, double rotation) {
+        if(width < 0 || height < 0) throw new IllegalArgumentException("The size of the box must not be negative");
+        Vector origin = prepareSweep();
+        return sweep(ShapeSweep.box(origin, direction, width, height, rotation, maxDistance), origin);
+    }
+
+    private Vector prepareSweep() {
         if(gameObject != null) {
             map = gameObject.getMap();
             Objects.requireNonNull(map, "The gameobject that is the source of the ray must be in a world");
         }
+        if(direction.x() == 0 && direction.y() == 0)
+            throw new IllegalStateException("The direction of a shape cast must not be zero");
+        return gameObject != null ? gameObject.location() : origin;
+    }
 
+    /**
+     * Runs the given sweep against all candidates whose bounds overlap the
+     * area covered by the moving shape.
+     */
+    private ShapeCast sweep(ShapeSweep sweep, Vector origin) {
+        double minX = Double.NEGATIVE_INFINITY, minY = minX, maxX = Double.POSITIVE_INFINITY, maxY = maxX;
+        if(Double.isFinite(maxDistance)) {
+            double length = Math.sqrt(direction.x() * direction.x() + direction.y() * direction.y()), extent = sweep.extent();
+            double endX = origin.x() + direction.x() / length * maxDistance, endY = origin.y() + direction.y() / length * maxDistance;
+            minX = Math.min(origin.x(), endX) - extent;
+            minY = Math.min(origin.y(), endY) - extent;
+            maxX = Math.max(origin.x(), endX) + extent;
+            maxY = Math.max(origin.y(), endY) + extent;
+        }
+
+        List<GameObject> candidates = new ArrayList<>();
+        if(this.objects != null) {
+            for(GameObject object : this.objects) if(acceptCandidate(object)) candidates.add(object);
+        }
+        else {
+            Set<GameObject> modified = map.getModifiedColliders();
+            List<GameObject> found = new ArrayList<>(modified);
+            map.getDynamicColliders().findAll(minX, minY, maxX, maxY, found);
+            map.getStaticColliders().findAll(minX, minY, maxX, maxY, found);
+            int modifiedCount = modified.size();
+            for(int i = 0; i < found.size(); i++) {
+                GameObject object = found.get(i);
+                if(i >= modifiedCount && modified.contains(object)) continue;
+                if(object.getMap() == map && accept(object)) candidates.add(object);
+            }
+            if(map.isBounded() && acceptCandidate(map)) candidates.add(map);
+        }
+
+        for(GameObject candidate : candidates) {
+            Collider collider = candidate.getComponent(Collider.class);
+            if(collider == null) continue;
+            if(collider instanceof CircleCollider) {
+                Vector location = candidate.location();
+                sweep.circle(candidate, null, location.x(), location.y(), ((CircleCollider) collider).getRadius());
+                continue;
+            }
+            for(Border border : collider.getBorders(origin)) {
+                if(!(border instanceof Edge)) continue;
+                Edge edge = (Edge) border;
+                sweep.segment(candidate, border, edge.start.x(), edge.start.y(), edge.end.x(), edge.end.y());
+            }
+        }
+        return sweep.result(gameObject, origin);
+    }
+
+    /**
+     * Calculates the raycast against the border snapshot.
+     */
+    private Raycast calculateSnapshot() {
+        com.github.rccookie.geometry.Ray ray = new com.github.rccookie.geometry.Ray(origin, direction);
+        double length = Math.sqrt(direction.x() * direction.x() + direction.y() * direction.y());
+        double[] hit = new double[6];
+        int index = length != 0 ? snapshot.raycast(origin.x(), origin.y(), direction.x() / length, direction.y() / length,
+                maxDistance, this::acceptSnapshot, hit) : -1;
+        if(index == -1)
+            return new Raycast(null, gameObject, com.github.rccookie.geometry.Raycast.raycast2D(ray, maxDistance, java.util.Collections.emptySet()));
+
+        // Only the border that was hit is passed on, to get the same raw result as for live colliders
+        Border border = snapshot.border(index, (int) hit[5]);
+        Raycast2D raw = com.github.rccookie.geometry.Raycast.raycast2D(ray, maxDistance, java.util.Collections.singleton(border));
+        return new Raycast(raw.hitBorder != null ? snapshot.object(index) : null, gameObject, raw);
+    }
+
+    /**
+     * Calculates a batch of raycasts against the border snapshot.
+     */
+    private RaycastBatch calculateAllSnapshot(Vector[] origins, Vector[] directions) {
+        RaycastBatch batch = new RaycastBatch(directions.length, snapshot.objects());
+        IntStream rays = IntStream.range(0, directions.length);
+        if(directions.length >= PARALLEL_THRESHOLD && Core.getRealSession().isJava()) rays = rays.parallel();
+        rays.forEach(i -> {
+            Vector origin = Arguments.checkNull(origins[origins.length == 1 ? 0 : i], "origin");
+            Vector direction = Arguments.checkNull(directions[i], "direction");
+            double length = Math.sqrt(direction.x() * direction.x() + direction.y() * direction.y());
+            double[] hit = new double[6];
+            int index = length != 0 ? snapshot.raycast(origin.x(), origin.y(), direction.x() / length, direction.y() / length,
+                    maxDistance, this::acceptSnapshot, hit) : -1;
+            if(index == -1) batch.set(i, origin.x(), origin.y(), maxDistance, Double.NaN, Double.NaN, -1);
+            else batch.set(i, origin.x(), origin.y(), hit[0], hit[1], hit[2], index);
+        });
+        return batch;
+    }
+
+    /**
+     * Calculates the raycast by testing the borders of all candidates at
+     * once. Used if the objects to test were specified explicitly.
+     */
+    private Raycast calculateLinear(com.github.rccookie.geometry.Ray ray) {
         // Get objects
         Set<GameObject> objects;
         if(this.objects != null)
             objects = new HashSet<>(this.objects);
         else
-            objects = map.findAll(type).stream().map(c -> (GameObject)c).collect(Collectors.toCollection(HashSet::new));
+            objects = map.findAll(type).stream().map(o -> (GameObject) o).collect(Collectors.toCollection(HashSet::new));
         if(map.isBounded() && !shouldIgnore(map))
             objects.add(map);
 
@@ -122,11 +632,10 @@ public final class RaycastBuilder {
 
         // Remove objects that are too far away
         if(Double.isFinite(maxDistance) && maxDistance > 0) {
-            double sqrMaxDist = maxDistance * maxDistance;
             Collections.removeIf(objects, a -> {
-                int sqrImgSize = (a.getImage().getWidth() * a.getImage().getWidth() + a.getImage().getHeight() * a.getImage().getHeight()) / 4;
-                double sqrDist = Vector.sqrDistance(a.location(), origin);
-                return sqrDist + sqrImgSize - 2 * Math.sqrt(sqrDist * sqrImgSize) > sqrMaxDist;
+                if(a == map) return false;
+                double range = maxDistance + a.getBoundingRadius();
+                return Vector.sqrDistance(a.location(), origin) > range * range;
             });
         }
 
@@ -138,19 +647,158 @@ public final class RaycastBuilder {
 
 
         // Letting the result be calculated
-        com.github.rccookie.geometry.Raycast.Raycast2D raw = com.github.rccookie.geometry.Raycast.raycast2D(new com.github.rccookie.geometry.Ray(origin, direction), maxDistance, borders.keySet());
+        Raycast2D raw = com.github.rccookie.geometry.Raycast.raycast2D(ray, maxDistance, borders.keySet());
         // Return the object that is associated with the edge that was hit. If the edge hit is null, so will be the object hit
-        gameObject = borders.get(raw.hitBorder);
+        return new Raycast(borders.get(raw.hitBorder), gameObject, raw);
+    }
+
+    /**
+     * Returns weather the given object may be hit by the ray.
+     */
+    private boolean accept(GameObject object) {
+        return object != gameObject && type.isInstance(object) && !shouldIgnore(object) && !isIgnored(object)
+                && object.getImage() != null && filter.test(object);
+    }
+
+    /**
+     * Returns weather the given object may be hit by rays of a batch. Unlike
+     * {@link #accept(GameObject)} this does not check the type, as the
+     * candidates are already of that type.
+     */
+    private boolean acceptCandidate(GameObject object) {
+        if(object == gameObject || shouldIgnore(object) || isIgnored(object)) return false;
+        return object == map || (object.getImage() != null && filter.test(object));
+    }
+
+    /**
+     * Returns weather the given object of the border snapshot may be hit by
+     * the ray. Does not access any mutable state of the object itself.
+     */
+    private boolean acceptSnapshot(GameObject object) {
+        if(object == gameObject || shouldIgnore(object) || isIgnored(object)) return false;
+        if(object == snapshot.map) return true;
+        if(this.objects != null ? !this.objects.contains(object) : !type.isInstance(object)) return false;
+        return filter.test(object);
+    }
 
-        return new Raycast(
-                borders.get(raw.hitBorder),
-                gameObject,
-                raw
-        );
+    /**
+     * Returns weather the bounds of the given object may be within the given
+     * distance of the origin.
+     */
+    private static boolean inRange(GameObject object, Vector origin, double maxDistance) {
+        Collider collider = object.getComponent(Collider.class);
+        if(collider == null) return false;
+        if(collider instanceof DefaultCollider) {
+            // Avoid creating the bounds for the most common collider
+            if(!Double.isFinite(maxDistance) || (object.getWidth() == 0 && object.getHeight() == 0)) return true;
+            double range = maxDistance + object.getBoundingRadius();
+            return Vector.sqrDistance(object.location(), origin) <= range * range;
+        }
+        Collider.Bounds bounds = collider.getBounds();
+        if(bounds == null || !Double.isFinite(maxDistance)) return true;
+        double range = maxDistance + 0.5 * Math.sqrt(bounds.size.x() * bounds.size.x() + bounds.size.y() * bounds.size.y());
+        return Vector.sqrDistance(bounds.center, origin) <= range * range;
+    }
+
+    private boolean isIgnored(GameObject object) {
+        for(GameObject ignore : ignored)
+            if(ignore == object) return true;
+        return false;
     }
 
     private static boolean shouldIgnore(final GameObject object) {
         if(object == null) return true;
         return object.getClass().isAnnotationPresent(IgnoreOnRaycasts.class);
     }
+
+
+    /**
+     * Intersects rays with the borders of objects without creating new
+     * objects, and remembers the closest hit. Used for both traversing the
+     * collider trees and testing single objects.
+     */
+    private final class PrimitiveVisitor implements ColliderTree.RayVisitor {
+
+        private Vector origin;
+        private double x, y, dx, dy;
+
+        /**
+         * The outdated objects to skip, or {@code null} if the objects
+         * visited are not from the dynamic colliders.
+         */
+        private Set<GameObject> modified;
+
+        private GameObject object;
+        private double distance, normalX, normalY;
+        private final double[] normal = new double[2];
+
+        /**
+         * Reused for every traversal of the colliders of the map.
+         */
+        private final ColliderTree.RayBuffer buffer = new ColliderTree.RayBuffer();
+
+        /**
+         * The number of objects tested since the last start.
+         */
+        private int tested;
+
+        void start(Vector origin, double x, double y, double dx, double dy) {
+            this.origin = origin;
+            this.x = x;
+            this.y = y;
+            this.dx = dx;
+            this.dy = dy;
+            modified = null;
+            object = null;
+            tested = 0;
+        }
+
+        void reset() {
+            origin = null;
+            modified = null;
+            object = null;
+        }
+
+        @Override
+        public double visit(GameObject object, double maxDistance) {
+            if(modified != null && (object.getMap() != map || modified.contains(object))) return maxDistance;
+            return accept(object) ? test(object, maxDistance) : maxDistance;
+        }
+
+        double test(GameObject object, double maxDistance) {
+            tested++;
+            Collider collider = object.getComponent(Collider.class);
+            if(collider == null) return maxDistance;
+            double distance = collider.raycast(x, y, dx, dy, maxDistance, normal);
+            if(Double.isNaN(distance)) return fallback(object, collider, maxDistance);
+            return distance < maxDistance ? found(object, distance, normal[0], normal[1]) : maxDistance;
+        }
+
+        /**
+         * Tests the borders of colliders that do not support direct
+         * intersection using the geometry library.
+         */
+        private double fallback(GameObject object, Collider collider, double maxDistance) {
+            Border[] borders = collider.getBorders(origin);
+            if(borders.length == 0) return maxDistance;
+            com.github.rccookie.geometry.Ray ray = new com.github.rccookie.geometry.Ray(origin, Vector.of(dx, dy));
+            Raycast2D raw = com.github.rccookie.geometry.Raycast.raycast2D(ray, maxDistance, new HashSet<>(Arrays.asList(borders)));
+            if(raw.hitBorder == null || raw.length() >= maxDistance) return maxDistance;
+            if(raw.hitBorder instanceof Edge) {
+                Edge edge = (Edge) raw.hitBorder;
+                double ex = edge.end.x() - edge.start.x(), ey = edge.end.y() - edge.start.y(), length = Math.sqrt(ex * ex + ey * ey);
+                double side = (x - edge.start.x()) * ey - (y - edge.start.y()) * ex >= 0 ? 1 : -1;
+                return found(object, raw.length(), side * ey / length, -side * ex / length);
+            }
+            return found(object, raw.length(), -dx, -dy);
+        }
+
+        private double found(GameObject object, double distance, double normalX, double normalY) {
+            this.object = object;
+            this.distance = distance;
+            this.normalX = normalX;
+            this.normalY = normalY;
+            return distance;
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package com.github.rccookie.greenfoot.core.raycast;
+
+import com.github.rccookie.geometry.Vector;
+import com.github.rccookie.greenfoot.core.GameObject;
+
+/**
+ * A reusable buffer for the result of a single raycast, filled by
+ * {@link RaycastBuilder#calculate(RaycastHit)}. Unlike {@link Raycast}, the
+ * result is stored in primitive fields, so the same instance can be used for
+ * any number of raycasts without creating a result object each time. The
+ * values are overridden by every raycast the buffer is used for.
+ */
+public final class RaycastHit {
+
+    /**
+     * The object hit, or {@code null}.
+     */
+    GameObject gameObject;
+
+    /**
+     * The length of the ray until the hit, or the maximum length if nothing
+     * was hit.
+     */
+    double length;
+
+    /**
+     * The root of the ray.
+     */
+    double rootX, rootY;
+
+    /**
+     * The location of the hit and the surface normal at that location.
+     */
+    double x = Double.NaN, y = Double.NaN, normalX = Double.NaN, normalY = Double.NaN;
+
+
+
+    /**
+     * Creates a new, empty hit buffer.
+     */
+    public RaycastHit() { }
+
+
+
+    /**
+     * Stores a ray that did not hit anything.
+     */
+    void setMiss(double rootX, double rootY, double length) {
+        gameObject = null;
+        this.length = length;
+        this.rootX = rootX;
+        this.rootY = rootY;
+        x = y = normalX = normalY = Double.NaN;
+    }
+
+    /**
+     * Stores a ray that hit the given object.
+     */
+    void setHit(GameObject gameObject, double rootX, double rootY, double length, double x, double y, double normalX, double normalY) {
+        this.gameObject = gameObject;
+        this.length = length;
+        this.rootX = rootX;
+        this.rootY = rootY;
+        this.x = x;
+        this.y = y;
+        this.normalX = normalX;
+        this.normalY = normalY;
+    }
+
+
+
+    /**
+     * Returns weather the ray hit anything. This is the same as
+     * {@code gameObject() != null}.
+     *
+     * @return Weather the ray hit an object
+     */
+    public boolean collided() {
+        return gameObject != null;
+    }
+
+    /**
+     * Returns the object that was hit by the ray.
+     *
+     * @return The object hit, or {@code null} if the ray did not hit anything
+     */
+    public GameObject gameObject() {
+        return gameObject;
+    }
+
+    /**
+     * Returns the length of the ray from its root until the point of
+     * intersection. If there was no hit this is the maximum length of the
+     * ray, which may be {@link Double#POSITIVE_INFINITY}.
+     *
+     * @return The length of the ray
+     */
+    public double length() {
+        return length;
+    }
+
+    /**
+     * Returns the x coordinate of the root of the ray.
+     *
+     * @return The x coordinate of the ray's root
+     */
+    public double rootX() {
+        return rootX;
+    }
+
+    /**
+     * Returns the y coordinate of the root of the ray.
+     *
+     * @return The y coordinate of the ray's root
+     */
+    public double rootY() {
+        return rootY;
+    }
+
+    /**
+     * Returns the x coordinate of the location where the ray hit.
+     *
+     * @return The x coordinate of the hit, or {@link Double#NaN} if the ray
+     *         did not hit anything
+     */
+    public double x() {
+        return x;
+    }
+
+    /**
+     * Returns the y coordinate of the location where the ray hit.
+     *
+     * @return The y coordinate of the hit, or {@link Double#NaN} if the ray
+     *         did not hit anything
+     */
+    public double y() {
+        return y;
+    }
+
+    /**
+     * Returns the x component of the normalized surface normal at the
+     * location of the hit, pointing towards the root of the ray.
+     *
+     * @return The x component of the normal, or {@link Double#NaN} if the
+     *         ray did not hit anything
+     */
+    public double normalX() {
+        return normalX;
+    }
+
+    /**
+     * Returns the y component of the normalized surface normal at the
+     * location of the hit, pointing towards the root of the ray.
+     *
+     * @return The y component of the normal, or {@link Double#NaN} if the
+     *         ray did not hit anything
+     */
+    public double normalY() {
+        return normalY;
+    }
+
+    /**
+     * Returns the location where the ray hit. This creates a new vector.
+     *
+     * @return A new vector with the location of the hit, or {@code null} if
+     *         the ray did not hit anything
+     */
+    public Vector location() {
+        return collided() ? Vector.of(x, y) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "RaycastHit{Object: " + gameObject + ", root: (" + rootX + ", " + rootY + "), length: " + length + "}";
+    }
+}
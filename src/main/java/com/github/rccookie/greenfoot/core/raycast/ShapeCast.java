@@ -0,0 +1,175 @@
+package com.github.rccookie.greenfoot.core.raycast;
+
+import com.github.rccookie.geometry.Border;
+import com.github.rccookie.geometry.Edge;
+import com.github.rccookie.geometry.Vector;
+import com.github.rccookie.greenfoot.core.Color;
+import com.github.rccookie.greenfoot.core.GameObject;
+import com.github.rccookie.greenfoot.core.Image;
+import com.github.rccookie.greenfoot.core.Map;
+import com.github.rccookie.util.Arguments;
+
+import java.util.Objects;
+
+/**
+ * The result of sweeping a circle or a box along a ray, calculated by
+ * {@link RaycastBuilder#calculateCircleCast(double)} or
+ * {@link RaycastBuilder#calculateBoxCast(double, double, double)}. Like
+ * {@link Raycast}, but for a shape with a size instead of a single point.
+ */
+public final class ShapeCast {
+
+    /**
+     * The object that was hit by the shape. May be {@code null} if no object
+     * was hit.
+     */
+    public final GameObject gameObject;
+
+    /**
+     * The object that is the source of this cast. May be {@code null} if the
+     * cast was not specified to start from a specific object but from a
+     * certain location.
+     */
+    public final GameObject source;
+
+    /**
+     * The border that was hit. May be {@code null} if nothing was hit or the
+     * hit object was a circle collider.
+     */
+    public final Border border;
+
+    /**
+     * The edge that was hit. May be {@code null} if nothing was hit or the
+     * hit border was not an edge.
+     */
+    public final Edge edge;
+
+    /**
+     * The center of the shape when it started moving. Should never be
+     * {@code null}.
+     */
+    public final Vector root;
+
+    /**
+     * The center of the shape at the time of impact. May be {@code null} if
+     * the shape did not hit anything.
+     */
+    public final Vector location;
+
+    /**
+     * The point where the shape touches the object it hit. May be
+     * {@code null} if the shape did not hit anything.
+     */
+    public final Vector contact;
+
+    /**
+     * The normalized surface normal at the contact point, pointing towards
+     * the shape. May be {@code null} if the shape did not hit anything.
+     */
+    public final Vector normal;
+
+    /**
+     * A line from the root to the location of the shape at the time of
+     * impact. May be {@code null} if the shape did not hit anything.
+     */
+    public final Edge line;
+
+    /**
+     * Indicates weather the shape has hit anything. This is the same as
+     * {@code gameObject != null}.
+     */
+    public final boolean collided;
+
+    /**
+     * The distance the shape moved until the impact. If there was no hit this
+     * is the maximum distance of the cast.
+     */
+    private final double length;
+
+
+
+    ShapeCast(GameObject gameObject, GameObject source, Border border, Vector root, double length,
+              Vector location, Vector contact, Vector normal) {
+        this.gameObject = gameObject;
+        this.source = source;
+        this.border = border;
+        this.root = root;
+        this.length = length;
+        this.location = location;
+        this.contact = contact;
+        this.normal = normal;
+        edge = border instanceof Edge ? (Edge) border : null;
+        collided = gameObject != null;
+        line = collided ? new Edge(root, location) : null;
+    }
+
+
+
+    /**
+     * The distance the shape moved from its root until the time of impact. If
+     * there was no hit this is the maximum distance of the cast, which may be
+     * {@link Double#POSITIVE_INFINITY}.
+     */
+    public double length() {
+        return length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(!(obj instanceof ShapeCast)) return false;
+        ShapeCast o = (ShapeCast) obj;
+        return length == o.length
+                && Objects.equals(gameObject, o.gameObject)
+                && Objects.equals(source, o.source)
+                && Objects.equals(root, o.root)
+                && Objects.equals(location, o.location);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gameObject, source, root, length);
+    }
+
+    @Override
+    public String toString() {
+        return "ShapeCast{Object: " + gameObject + ", path: " + line + ", length: " + length + "}";
+    }
+
+
+
+    /**
+     * Draws the path of the shape onto the map of {@code source}. If the path
+     * has an infinite length it will not be drawn.
+     *
+     * @param color The color to draw the path in
+     */
+    public void draw(Color color) {
+        Arguments.checkNull(color);
+        Objects.requireNonNull(source);
+        draw(source.getMap(), color);
+    }
+
+    /**
+     * Draws the path of the shape onto the specified map. If the path has an
+     * infinite length it will not be drawn.
+     *
+     * @param map The map to draw the path onto
+     * @param color The color to draw the path in
+     */
+    public void draw(Map map, Color color) {
+        if(map == null) return;
+        draw(map.getImage(), color);
+    }
+
+    /**
+     * Draws the path of the shape onto the specified image. If the path has
+     * an infinite length it will not be drawn.
+     *
+     * @param image The image to draw the path onto
+     * @param color The color to draw the path in
+     */
+    public void draw(Image image, Color color) {
+        if(image == null || color == null || location == null) return;
+        image.drawLine((int) root.x(), (int) root.y(), (int) location.x(), (int) location.y(), color);
+    }
+}
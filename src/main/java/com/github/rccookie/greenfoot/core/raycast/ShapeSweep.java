@@ -0,0 +1,390 @@
+package com.github.rccookie.greenfoot.core.raycast;
+
+import com.github.rccookie.geometry.Border;
+import com.github.rccookie.geometry.Vector;
+import com.github.rccookie.greenfoot.core.GameObject;
+
+/**
+ * Finds the first time of impact of a circle or a box moving along a ray.
+ * Each tested border is expanded by the shape (its Minkowski sum with the
+ * shape is built), so that the time of impact is the distance at which the
+ * center of the shape enters the expanded border.
+ * <p>All calculations happen in the local space of the shape, with the
+ * origin at its start location and, for boxes, the axes aligned with the box.
+ */
+final class ShapeSweep {
+
+    /**
+     * Tolerance used for contact points and parallel directions.
+     */
+    private static final double EPSILON = 1e-9;
+
+    private final boolean circle;
+    private final double radius, halfWidth, halfHeight;
+
+    /**
+     * The start location and rotation of the shape.
+     */
+    private final double originX, originY, cos, sin;
+
+    /**
+     * The normalized direction of movement in local space.
+     */
+    private final double dx, dy;
+
+    /**
+     * The distance of the closest hit so far, or the maximum distance.
+     */
+    double distance;
+
+    /**
+     * The closest hit so far, in local space.
+     */
+    GameObject object = null;
+    Border border = null;
+    private double normalX, normalY, contactX, contactY;
+
+
+
+    private ShapeSweep(boolean circle, double radius, double halfWidth, double halfHeight, Vector origin,
+                       double rotation, Vector direction, double maxDistance) {
+        this.circle = circle;
+        this.radius = radius;
+        this.halfWidth = halfWidth;
+        this.halfHeight = halfHeight;
+        originX = origin.x();
+        originY = origin.y();
+        double radians = Math.toRadians(rotation);
+        cos = Math.cos(radians);
+        sin = Math.sin(radians);
+        double length = Math.sqrt(direction.x() * direction.x() + direction.y() * direction.y());
+        dx = localX(direction.x() / length, direction.y() / length);
+        dy = localY(direction.x() / length, direction.y() / length);
+        distance = maxDistance;
+    }
+
+    static ShapeSweep circle(Vector origin, Vector direction, double radius, double maxDistance) {
+        return new ShapeSweep(true, radius, 0, 0, origin, 0, direction, maxDistance);
+    }
+
+    static ShapeSweep box(Vector origin, Vector direction, double width, double height, double rotation, double maxDistance) {
+        return new ShapeSweep(false, 0, 0.5 * width, 0.5 * height, origin, rotation, direction, maxDistance);
+    }
+
+
+
+    private double localX(double x, double y) {
+        return x * cos + y * sin;
+    }
+
+    private double localY(double x, double y) {
+        return -x * sin + y * cos;
+    }
+
+    private double worldX(double x, double y) {
+        return x * cos - y * sin;
+    }
+
+    private double worldY(double x, double y) {
+        return x * sin + y * cos;
+    }
+
+    /**
+     * Returns a conservative radius of the shape, used for culling.
+     */
+    double extent() {
+        return circle ? radius : Math.sqrt(halfWidth * halfWidth + halfHeight * halfHeight);
+    }
+
+
+
+    /**
+     * Tests the shape against the given segment in map coordinates.
+     */
+    void segment(GameObject object, Border border, double x1, double y1, double x2, double y2) {
+        double ax = localX(x1 - originX, y1 - originY), ay = localY(x1 - originX, y1 - originY);
+        double bx = localX(x2 - originX, y2 - originY), by = localY(x2 - originX, y2 - originY);
+        if(circle) circleSegment(object, border, ax, ay, bx, by);
+        else boxSegment(object, border, ax, ay, bx, by);
+    }
+
+    /**
+     * Tests the shape against the given circle in map coordinates.
+     */
+    void circle(GameObject object, Border border, double x, double y, double r) {
+        double cx = localX(x - originX, y - originY), cy = localY(x - originX, y - originY);
+        if(circle) {
+            double t = rayCircle(cx, cy, radius + r);
+            if(t >= distance) return;
+            double px = dx * t, py = dy * t, nx = px - cx, ny = py - cy, length = Math.sqrt(nx * nx + ny * ny);
+            if(length < EPSILON) { nx = -dx; ny = -dy; }
+            else { nx /= length; ny /= length; }
+            hit(object, border, t, nx, ny, cx + nx * r, cy + ny * r);
+            return;
+        }
+
+        // The box expanded by a circle is a rounded rectangle
+        double best = Double.POSITIVE_INFINITY, nx = 0, ny = 0;
+        double t = rayBox(cx - halfWidth - r, cy - halfHeight, cx + halfWidth + r, cy + halfHeight);
+        if(t < best) {
+            best = t;
+            nx = Math.signum(dx * t - cx);
+            ny = 0;
+        }
+        t = rayBox(cx - halfWidth, cy - halfHeight - r, cx + halfWidth, cy + halfHeight + r);
+        if(t < best) {
+            best = t;
+            nx = 0;
+            ny = Math.signum(dy * t - cy);
+        }
+        for(int i = 0; i < 4; i++) {
+            double cornerX = cx + ((i & 1) == 0 ? -halfWidth : halfWidth);
+            double cornerY = cy + ((i & 2) == 0 ? -halfHeight : halfHeight);
+            t = rayCircle(cornerX, cornerY, r);
+            if(t < best) {
+                best = t;
+                nx = (dx * t - cornerX) / r;
+                ny = (dy * t - cornerY) / r;
+            }
+        }
+        if(best >= distance) return;
+        if(nx == 0 && ny == 0) { nx = -dx; ny = -dy; }
+
+        // The closest point of the box to the circle's center touches the circle
+        double px = dx * best, py = dy * best;
+        double contactX = px + Math.max(-halfWidth, Math.min(halfWidth, cx - px));
+        double contactY = py + Math.max(-halfHeight, Math.min(halfHeight, cy - py));
+        hit(object, border, best, nx, ny, contactX, contactY);
+    }
+
+
+
+    private void circleSegment(GameObject object, Border border, double ax, double ay, double bx, double by) {
+        double sx = bx - ax, sy = by - ay, length = Math.sqrt(sx * sx + sy * sy);
+        if(length < EPSILON) {
+            circle(object, border, ax, ay, 0);
+            return;
+        }
+        double nx = -sy / length, ny = sx / length;
+        double best = Double.POSITIVE_INFINITY, hitNX = 0, hitNY = 0, hitCX = 0, hitCY = 0;
+
+        // Already overlapping
+        double u = Math.max(0, Math.min(1, -(ax * sx + ay * sy) / (length * length)));
+        double closestX = ax + sx * u, closestY = ay + sy * u;
+        double closestDist = Math.sqrt(closestX * closestX + closestY * closestY);
+        if(closestDist <= radius) {
+            best = 0;
+            if(closestDist < EPSILON) { hitNX = -dx; hitNY = -dy; }
+            else { hitNX = -closestX / closestDist; hitNY = -closestY / closestDist; }
+            hitCX = closestX;
+            hitCY = closestY;
+        }
+        else {
+            // The two sides of the capsule
+            double side = ax * nx + ay * ny > 0 ? -1 : 1;
+            double dot = dx * nx + dy * ny;
+            if(Math.abs(dot) > EPSILON) {
+                double t = (ax * nx + ay * ny + side * radius) / dot;
+                double px = dx * t - side * radius * nx, py = dy * t - side * radius * ny;
+                double along = ((px - ax) * sx + (py - ay) * sy) / (length * length);
+                if(t >= 0 && along >= 0 && along <= 1) {
+                    best = t;
+                    hitNX = side * nx;
+                    hitNY = side * ny;
+                    hitCX = px;
+                    hitCY = py;
+                }
+            }
+            // The rounded ends of the capsule
+            for(int i = 0; i < 2; i++) {
+                double ex = i == 0 ? ax : bx, ey = i == 0 ? ay : by;
+                double t = rayCircle(ex, ey, radius);
+                if(t < best) {
+                    best = t;
+                    hitNX = (dx * t - ex) / radius;
+                    hitNY = (dy * t - ey) / radius;
+                    hitCX = ex;
+                    hitCY = ey;
+                }
+            }
+        }
+        if(best < distance) hit(object, border, best, hitNX, hitNY, hitCX, hitCY);
+    }
+
+    private void boxSegment(GameObject object, Border border, double ax, double ay, double bx, double by) {
+        // The segment expanded by the box is the convex hull of the segment moved to each corner
+        double[] points = new double[16];
+        for(int i = 0; i < 4; i++) {
+            double ox = (i & 1) == 0 ? -halfWidth : halfWidth, oy = (i & 2) == 0 ? -halfHeight : halfHeight;
+            points[4 * i] = ax + ox;
+            points[4 * i + 1] = ay + oy;
+            points[4 * i + 2] = bx + ox;
+            points[4 * i + 3] = by + oy;
+        }
+        double[] hull = convexHull(points);
+        int n = hull.length / 2;
+        if(n < 3) return;
+
+        // Clip the ray against each edge of the hull, which is counterclockwise
+        double enter = 0, exit = distance, nx = -dx, ny = -dy;
+        for(int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            double ex = hull[2 * j] - hull[2 * i], ey = hull[2 * j + 1] - hull[2 * i + 1];
+            double outX = ey, outY = -ex, outLength = Math.sqrt(outX * outX + outY * outY);
+            if(outLength < EPSILON) continue;
+            outX /= outLength;
+            outY /= outLength;
+            double offset = hull[2 * i] * outX + hull[2 * i + 1] * outY;
+            double dot = dx * outX + dy * outY;
+            if(Math.abs(dot) < EPSILON) {
+                if(offset < 0) return;
+                continue;
+            }
+            double t = offset / dot;
+            if(dot < 0) {
+                if(t > enter) {
+                    enter = t;
+                    nx = outX;
+                    ny = outY;
+                }
+            }
+            else if(t < exit) exit = t;
+            if(enter > exit) return;
+        }
+        if(enter >= distance) return;
+
+        // The contact is where the segment touches the box at the time of impact
+        double px = dx * enter, py = dy * enter;
+        double[] clipped = clip(ax - px, ay - py, bx - px, by - py, halfWidth + 1e-6, halfHeight + 1e-6);
+        double contactX, contactY;
+        if(clipped != null) {
+            contactX = px + 0.5 * (clipped[0] + clipped[2]);
+            contactY = py + 0.5 * (clipped[1] + clipped[3]);
+        }
+        else {
+            boolean first = (ax - px) * (ax - px) + (ay - py) * (ay - py) <= (bx - px) * (bx - px) + (by - py) * (by - py);
+            contactX = first ? ax : bx;
+            contactY = first ? ay : by;
+        }
+        hit(object, border, enter, nx, ny, contactX, contactY);
+    }
+
+
+
+    /**
+     * Returns the distance at which the ray from the local origin enters the
+     * given circle, {@code 0} if it starts inside, or infinity if it misses.
+     */
+    private double rayCircle(double cx, double cy, double r) {
+        double along = cx * dx + cy * dy, sqrDist = cx * cx + cy * cy;
+        if(sqrDist <= r * r) return 0;
+        double discriminant = along * along - sqrDist + r * r;
+        if(discriminant < 0) return Double.POSITIVE_INFINITY;
+        double t = along - Math.sqrt(discriminant);
+        return t >= 0 ? t : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the distance at which the ray from the local origin enters the
+     * given axis aligned box, {@code 0} if it starts inside, or infinity if it
+     * misses.
+     */
+    private double rayBox(double minX, double minY, double maxX, double maxY) {
+        double near = 0, far = Double.POSITIVE_INFINITY;
+        if(Math.abs(dx) < EPSILON) {
+            if(minX > 0 || maxX < 0) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = minX / dx, t2 = maxX / dx;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        if(Math.abs(dy) < EPSILON) {
+            if(minY > 0 || maxY < 0) return Double.POSITIVE_INFINITY;
+        } else {
+            double t1 = minY / dy, t2 = maxY / dy;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+        }
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Clips the given segment to the axis aligned box around the local origin
+     * with the given half size, or returns {@code null} if it is outside.
+     */
+    private static double[] clip(double ax, double ay, double bx, double by, double halfWidth, double halfHeight) {
+        double from = 0, to = 1, sx = bx - ax, sy = by - ay;
+        double[] p = { -sx, sx, -sy, sy };
+        double[] q = { ax + halfWidth, halfWidth - ax, ay + halfHeight, halfHeight - ay };
+        for(int i = 0; i < 4; i++) {
+            if(p[i] == 0) {
+                if(q[i] < 0) return null;
+                continue;
+            }
+            double r = q[i] / p[i];
+            if(p[i] < 0) from = Math.max(from, r);
+            else to = Math.min(to, r);
+            if(from > to) return null;
+        }
+        return new double[] { ax + sx * from, ay + sy * from, ax + sx * to, ay + sy * to };
+    }
+
+    /**
+     * Returns the counterclockwise convex hull of the given points, using a
+     * monotone chain.
+     */
+    private static double[] convexHull(double[] points) {
+        int n = points.length / 2;
+        Integer[] order = new Integer[n];
+        for(int i = 0; i < n; i++) order[i] = i;
+        java.util.Arrays.sort(order, (a, b) -> points[2 * a] != points[2 * b] ?
+                Double.compare(points[2 * a], points[2 * b]) : Double.compare(points[2 * a + 1], points[2 * b + 1]));
+
+        int[] hull = new int[2 * n];
+        int size = 0;
+        for(int pass = 0; pass < 2; pass++) {
+            int start = size;
+            for(int k = 0; k < n; k++) {
+                int i = order[pass == 0 ? k : n - 1 - k];
+                while(size >= start + 2 && cross(points, hull[size - 2], hull[size - 1], i) <= 0) size--;
+                hull[size++] = i;
+            }
+            size--;
+        }
+        double[] result = new double[2 * size];
+        for(int i = 0; i < size; i++) {
+            result[2 * i] = points[2 * hull[i]];
+            result[2 * i + 1] = points[2 * hull[i] + 1];
+        }
+        return result;
+    }
+
+    private static double cross(double[] points, int o, int a, int b) {
+        return (points[2 * a] - points[2 * o]) * (points[2 * b + 1] - points[2 * o + 1])
+                - (points[2 * a + 1] - points[2 * o + 1]) * (points[2 * b] - points[2 * o]);
+    }
+
+
+
+    private void hit(GameObject object, Border border, double distance, double normalX, double normalY, double contactX, double contactY) {
+        this.distance = distance;
+        this.object = object;
+        this.border = border;
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.contactX = contactX;
+        this.contactY = contactY;
+    }
+
+    /**
+     * Creates the result of this sweep.
+     */
+    ShapeCast result(GameObject source, Vector root) {
+        if(object == null) return new ShapeCast(null, source, null, root, distance, null, null, null);
+        double px = dx * distance, py = dy * distance;
+        return new ShapeCast(object, source, border, root, distance,
+                Vector.of(originX + worldX(px, py), originY + worldY(px, py)),
+                Vector.of(originX + worldX(contactX, contactY), originY + worldY(contactX, contactY)),
+                Vector.of(worldX(normalX, normalY), worldY(normalX, normalY)));
+    }
+}
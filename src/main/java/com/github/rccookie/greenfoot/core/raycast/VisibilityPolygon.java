@@ -0,0 +1,373 @@
+package com.github.rccookie.greenfoot.core.raycast;
+
+import com.github.rccookie.geometry.Vector;
+import com.github.rccookie.greenfoot.core.Color;
+import com.github.rccookie.greenfoot.core.Image;
+import com.github.rccookie.greenfoot.core.Map;
+import com.github.rccookie.util.Arguments;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * The area visible from a certain location, calculated by
+ * {@link RaycastBuilder#calculateVisibility()}. The polygon is star shaped
+ * around its origin, and its vertices are ordered by their angle around the
+ * origin.
+ */
+public final class VisibilityPolygon {
+
+    /**
+     * Segments shorter than this or closer to the origin than this are ignored.
+     */
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * The location the polygon was calculated from.
+     */
+    public final Vector origin;
+
+    /**
+     * The coordinates of the vertices.
+     */
+    private final double[] xs, ys;
+
+
+
+    private VisibilityPolygon(Vector origin, double[] xs, double[] ys) {
+        this.origin = origin;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+
+
+    /**
+     * Returns the number of vertices of this polygon.
+     *
+     * @return The number of vertices
+     */
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * Returns the x coordinate of the vertex with the given index.
+     *
+     * @param index The index of the vertex
+     * @return The x coordinate of the vertex
+     */
+    public double x(int index) {
+        return xs[index];
+    }
+
+    /**
+     * Returns the y coordinate of the vertex with the given index.
+     *
+     * @param index The index of the vertex
+     * @return The y coordinate of the vertex
+     */
+    public double y(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Returns all vertices of this polygon, ordered by their angle around the
+     * origin.
+     *
+     * @return A new array with the vertices of this polygon
+     */
+    public Vector[] getVertices() {
+        Vector[] vertices = new Vector[xs.length];
+        for(int i = 0; i < vertices.length; i++) vertices[i] = Vector.of(xs[i], ys[i]);
+        return vertices;
+    }
+
+    /**
+     * Returns weather the given point is visible from the origin, that is,
+     * weather it lies within this polygon.
+     *
+     * @param point The point to check
+     * @return Weather the point is visible
+     */
+    public boolean contains(Vector point) {
+        Arguments.checkNull(point);
+        double x = point.x(), y = point.y();
+        boolean inside = false;
+        for(int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if((ys[i] > y) != (ys[j] > y) && x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j] - ys[i]) + xs[i])
+                inside = !inside;
+        }
+        return inside;
+    }
+
+    @Override
+    public String toString() {
+        return "VisibilityPolygon{origin: " + origin + ", vertices: " + xs.length + "}";
+    }
+
+
+
+    /**
+     * Draws the outline of this polygon onto the specified map.
+     *
+     * @param map The map to draw the polygon onto
+     * @param color The color to draw the polygon in
+     */
+    public void draw(Map map, Color color) {
+        if(map == null) return;
+        draw(map.getImage(), color);
+    }
+
+    /**
+     * Draws the outline of this polygon onto the specified image.
+     *
+     * @param image The image to draw the polygon onto
+     * @param color The color to draw the polygon in
+     */
+    public void draw(Image image, Color color) {
+        if(image == null || color == null || xs.length == 0) return;
+        image.drawPolygon(round(xs), round(ys), color);
+    }
+
+    /**
+     * Fills this polygon on the specified image.
+     *
+     * @param image The image to fill the polygon on
+     * @param color The color to fill the polygon with
+     */
+    public void fill(Image image, Color color) {
+        if(image == null || color == null || xs.length == 0) return;
+        image.fillPolygon(round(xs), round(ys), color);
+    }
+
+    private static int[] round(double[] coordinates) {
+        int[] rounded = new int[coordinates.length];
+        for(int i = 0; i < rounded.length; i++) rounded[i] = (int) (coordinates[i] + 0.5);
+        return rounded;
+    }
+
+
+
+    /**
+     * Calculates the visibility polygon around the given origin with a single
+     * angular sweep over the given segments. The segments must enclose the
+     * origin. They may cross each other, for example where an edge reaches
+     * past the radius or where colliders overlap; such segments are split at
+     * their intersections before the sweep, which takes {@code O(n^2)}
+     * for {@code n} segments. The sweep itself runs in
+     * {@code O(m log m)} for the resulting {@code m} segments.
+     *
+     * @param origin The location to calculate the visible area from
+     * @param segments The segments as {@code x1, y1, x2, y2}, one after the other
+     * @param count The number of segments
+     * @return The visibility polygon
+     */
+    static VisibilityPolygon calculate(Vector origin, double[] segments, int count) {
+        double ox = origin.x(), oy = origin.y();
+
+        // The sweep needs segments that do not cross: where the nearest
+        // segment changes between two events there would be no vertex
+        segments = splitIntersections(segments, count);
+        count = segments.length / 4;
+
+        // Split segments that cross the negative x axis, so that each one covers
+        // a continuous range of angles in [-pi, pi]
+        Segment[] split = new Segment[2 * count];
+        int size = 0;
+        for(int i = 0; i < count; i++) {
+            double ax = segments[4 * i] - ox, ay = segments[4 * i + 1] - oy;
+            double bx = segments[4 * i + 2] - ox, by = segments[4 * i + 3] - oy;
+            double dx = bx - ax, dy = by - ay, lengthSqr = dx * dx + dy * dy;
+            if(lengthSqr < EPSILON * EPSILON || Math.abs(ax * dy - ay * dx) < EPSILON * Math.sqrt(lengthSqr)) continue;
+
+            double angleA = Math.atan2(ay, ax), angleB = Math.atan2(by, bx);
+            if(angleA > angleB) {
+                double tmp = ax; ax = bx; bx = tmp;
+                tmp = ay; ay = by; by = tmp;
+                tmp = angleA; angleA = angleB; angleB = tmp;
+            }
+            if(angleB - angleA <= Math.PI) {
+                split[size] = new Segment(size++, ax, ay, bx, by, angleA, angleB);
+                continue;
+            }
+            double crossX = ax + (bx - ax) * (-ay / (by - ay));
+            if(angleA > -Math.PI) split[size] = new Segment(size++, crossX, 0, ax, ay, -Math.PI, angleA);
+            if(angleB < Math.PI) split[size] = new Segment(size++, bx, by, crossX, 0, angleB, Math.PI);
+        }
+
+        // One start and one end event per segment, sorted by angle
+        double[] eventAngles = new double[2 * size];
+        for(int i = 0; i < size; i++) {
+            eventAngles[2 * i] = split[i].start;
+            eventAngles[2 * i + 1] = split[i].end;
+        }
+        Integer[] events = new Integer[2 * size];
+        for(int i = 0; i < events.length; i++) events[i] = i;
+        Arrays.sort(events, Comparator.comparingDouble(e -> eventAngles[e]));
+
+        // Sweep. The segments do not cross, so they keep their order while both
+        // are active and comparing them anywhere within their common angles is
+        // consistent
+        TreeSet<Segment> active = new TreeSet<>();
+        double[] xs = new double[2 * events.length], ys = new double[2 * events.length];
+        int vertices = 0;
+        for(int i = 0; i < events.length;) {
+            double angle = eventAngles[events[i]];
+            Segment before = active.isEmpty() ? null : active.first();
+
+            // Remove all segments ending at this angle before adding the ones starting there
+            int groupEnd = i;
+            while(groupEnd < events.length && eventAngles[events[groupEnd]] == angle) groupEnd++;
+            for(int j = i; j < groupEnd; j++) if((events[j] & 1) == 1) active.remove(split[events[j] >> 1]);
+            for(int j = i; j < groupEnd; j++) if((events[j] & 1) == 0) active.add(split[events[j] >> 1]);
+            i = groupEnd;
+
+            Segment after = active.isEmpty() ? null : active.first();
+            if(before == after) continue;
+            double dx = Math.cos(angle), dy = Math.sin(angle);
+            if(before != null) {
+                double distance = before.distance(dx, dy);
+                xs[vertices] = ox + dx * distance;
+                ys[vertices++] = oy + dy * distance;
+            }
+            if(after != null) {
+                double distance = after.distance(dx, dy);
+                xs[vertices] = ox + dx * distance;
+                ys[vertices++] = oy + dy * distance;
+            }
+        }
+
+        // Remove duplicate vertices, including the one closing the polygon
+        int unique = 0;
+        for(int i = 0; i < vertices; i++) {
+            if(unique != 0 && Math.abs(xs[i] - xs[unique - 1]) < EPSILON && Math.abs(ys[i] - ys[unique - 1]) < EPSILON) continue;
+            xs[unique] = xs[i];
+            ys[unique++] = ys[i];
+        }
+        if(unique > 1 && Math.abs(xs[0] - xs[unique - 1]) < EPSILON && Math.abs(ys[0] - ys[unique - 1]) < EPSILON) unique--;
+
+        return new VisibilityPolygon(origin, Arrays.copyOf(xs, unique), Arrays.copyOf(ys, unique));
+    }
+
+
+
+    /**
+     * Splits the given segments at all points where they intersect each
+     * other, so that segments only touch at their end points afterwards.
+     *
+     * @param segments The segments as {@code x1, y1, x2, y2}, one after the other
+     * @param count The number of segments
+     * @return The split segments in the same format, exactly filling the array
+     */
+    private static double[] splitIntersections(double[] segments, int count) {
+        // The parameters along each segment where it has to be cut
+        double[][] cuts = new double[count][];
+        int[] cutCounts = new int[count];
+        int total = count;
+
+        for(int i = 0; i < count; i++) {
+            double ax = segments[4 * i], ay = segments[4 * i + 1];
+            double bx = segments[4 * i + 2], by = segments[4 * i + 3];
+            double rx = bx - ax, ry = by - ay;
+            double minX = Math.min(ax, bx), maxX = Math.max(ax, bx), minY = Math.min(ay, by), maxY = Math.max(ay, by);
+
+            for(int j = i + 1; j < count; j++) {
+                double cx = segments[4 * j], cy = segments[4 * j + 1];
+                double dx = segments[4 * j + 2], dy = segments[4 * j + 3];
+                if(Math.max(cx, dx) < minX || Math.min(cx, dx) > maxX || Math.max(cy, dy) < minY || Math.min(cy, dy) > maxY)
+                    continue;
+
+                double sx = dx - cx, sy = dy - cy;
+                double denominator = rx * sy - ry * sx;
+                if(denominator == 0) continue; // Parallel, overlapping parts compare equal
+                double qx = cx - ax, qy = cy - ay;
+                double t = (qx * sy - qy * sx) / denominator, u = (qx * ry - qy * rx) / denominator;
+                if(t < -EPSILON || t > 1 + EPSILON || u < -EPSILON || u > 1 + EPSILON) continue;
+
+                if(t > EPSILON && t < 1 - EPSILON) {
+                    cuts[i] = addCut(cuts[i], cutCounts[i]++, t);
+                    total++;
+                }
+                if(u > EPSILON && u < 1 - EPSILON) {
+                    cuts[j] = addCut(cuts[j], cutCounts[j]++, u);
+                    total++;
+                }
+            }
+        }
+
+        double[] split = new double[4 * total];
+        int size = 0;
+        for(int i = 0; i < count; i++) {
+            double ax = segments[4 * i], ay = segments[4 * i + 1];
+            double bx = segments[4 * i + 2], by = segments[4 * i + 3];
+            double[] segmentCuts = cuts[i];
+            int cutCount = cutCounts[i];
+            if(segmentCuts != null) Arrays.sort(segmentCuts, 0, cutCount);
+
+            double lastX = ax, lastY = ay;
+            for(int c = 0; c <= cutCount; c++) {
+                double x = c == cutCount ? bx : ax + (bx - ax) * segmentCuts[c];
+                double y = c == cutCount ? by : ay + (by - ay) * segmentCuts[c];
+                split[4 * size] = lastX;
+                split[4 * size + 1] = lastY;
+                split[4 * size + 2] = x;
+                split[4 * size++ + 3] = y;
+                lastX = x;
+                lastY = y;
+            }
+        }
+        return split;
+    }
+
+    private static double[] addCut(double[] cuts, int index, double cut) {
+        if(cuts == null) cuts = new double[2];
+        else if(index == cuts.length) cuts = Arrays.copyOf(cuts, 2 * index);
+        cuts[index] = cut;
+        return cuts;
+    }
+
+
+
+    /**
+     * A segment relative to the origin, with the range of angles it covers.
+     */
+    private static final class Segment implements Comparable<Segment> {
+
+        final int id;
+        final double ax, ay, bx, by;
+        final double start, end;
+
+        Segment(int id, double ax, double ay, double bx, double by, double start, double end) {
+            this.id = id;
+            this.ax = ax;
+            this.ay = ay;
+            this.bx = bx;
+            this.by = by;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Returns the distance from the origin to this segment in the given
+         * direction.
+         */
+        double distance(double dx, double dy) {
+            double sx = bx - ax, sy = by - ay;
+            double denominator = dx * sy - dy * sx;
+            if(Math.abs(denominator) < EPSILON)
+                return Math.min(Math.sqrt(ax * ax + ay * ay), Math.sqrt(bx * bx + by * by));
+            return (ax * sy - ay * sx) / denominator;
+        }
+
+        @Override
+        public int compareTo(Segment o) {
+            if(this == o) return 0;
+            double angle = 0.5 * (Math.max(start, o.start) + Math.min(end, o.end));
+            double dx = Math.cos(angle), dy = Math.sin(angle);
+            int result = Double.compare(distance(dx, dy), o.distance(dx, dy));
+            return result != 0 ? result : Integer.compare(id, o.id);
+        }
+    }
+}
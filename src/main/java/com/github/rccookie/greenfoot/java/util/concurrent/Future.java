@@ -1,5 +1,12 @@
 package com.github.rccookie.greenfoot.java.util.concurrent;
 
+import com.github.rccookie.greenfoot.core.Execution;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 public interface Future<V> {
 
     /**
@@ -46,4 +53,107 @@ public interface Future<V> {
      *                               has been canceled
      */
     V get() throws IllegalStateException;
+
+    /**
+     * Registers an action to be run once this task completed, no matter
+     * weather it completed normally, failed or was cancelled. The action is
+     * called exactly once, on the thread that completes the task. If the
+     * task is already done, the action is called immediately.
+     * <p>The default implementation does not know when the task completes,
+     * so it checks {@link #isDone()} once per frame using
+     * {@link Execution#runWhen(Supplier, BooleanSupplier)} and calls the
+     * action on the simulation thread. Implementations that complete the
+     * task themselves should override this to call the action right away.
+     *
+     * @param action The action to run with this future once it is done
+     * @return This future
+     */
+    default Future<V> whenDone(Consumer<? super Future<V>> action) {
+        if(action == null) throw new NullPointerException();
+        if(isDone()) action.accept(this);
+        else Execution.runWhen(() -> {
+            action.accept(this);
+            return null;
+        }, this::isDone);
+        return this;
+    }
+
+    /**
+     * Returns a new future that completes with the result of the given
+     * function applied to the result of this task, once this task completed
+     * normally. If this task fails or gets cancelled, so does the returned
+     * future. If the function throws an exception, the returned future
+     * fails with that exception.
+     *
+     * @param function The function to apply to the result
+     * @param <U> The result type of the function
+     * @return A future for the result of the function
+     */
+    default <U> Future<U> thenApply(Function<? super V, ? extends U> function) {
+        if(function == null) throw new NullPointerException();
+        FutureImpl<U> out = new FutureImpl<>();
+        whenDone(f -> {
+            // The returned future may have been cancelled in the meantime
+            if(out.isDone() || FutureImpl.forwardFailure(f, out)) return;
+            U result;
+            try {
+                result = function.apply(f.get());
+            } catch(RuntimeException e) {
+                if(!out.isDone()) out.setException(e);
+                return;
+            }
+            if(!out.isDone()) out.setValue(result);
+        });
+        return out;
+    }
+
+    /**
+     * Returns a new future that completes once the given action has been
+     * called with the result of this task. The action is only called if
+     * this task completed normally, see {@link #thenApply(Function)}.
+     *
+     * @param action The action to call with the result
+     * @return A future that completes after the action was called
+     */
+    default Future<Void> thenAccept(Consumer<? super V> action) {
+        if(action == null) throw new NullPointerException();
+        return thenApply(v -> {
+            action.accept(v);
+            return null;
+        });
+    }
+
+    /**
+     * Returns a new future that completes like the future returned by the
+     * given function, which is called with the result of this task once it
+     * completed normally. This allows chaining tasks that complete later,
+     * for example a task run with {@code Execution.runAsync()} that needs
+     * the result of this one.
+     *
+     * @param function The function returning the next future
+     * @param <U> The result type of the next future
+     * @return A future that completes like the future returned by the
+     *         function
+     */
+    default <U> Future<U> thenCompose(Function<? super V, ? extends Future<U>> function) {
+        if(function == null) throw new NullPointerException();
+        FutureImpl<U> out = new FutureImpl<>();
+        whenDone(f -> {
+            // The returned future may have been cancelled in the meantime
+            if(out.isDone() || FutureImpl.forwardFailure(f, out)) return;
+            Future<U> next;
+            try {
+                next = function.apply(f.get());
+                if(next == null) throw new NullPointerException("The function returned null instead of a future");
+            } catch(RuntimeException e) {
+                if(!out.isDone()) out.setException(e);
+                return;
+            }
+            next.whenDone(n -> {
+                if(out.isDone() || FutureImpl.forwardFailure(n, out)) return;
+                out.setValue(n.get());
+            });
+        });
+        return out;
+    }
 }
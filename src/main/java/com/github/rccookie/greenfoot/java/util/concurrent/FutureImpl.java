@@ -1,21 +1,68 @@
 package com.github.rccookie.greenfoot.java.util.concurrent;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 public class FutureImpl<T> implements Future<T> {
-    private boolean canceled = false;
-    private boolean done = false;
+    private volatile boolean canceled = false;
+    private volatile boolean done = false;
     private T value = null;
+    private RuntimeException exception = null;
+
+    /**
+     * The actions to run once the computation is done, or {@code null} if
+     * there are none.
+     */
+    private List<Consumer<? super Future<T>>> listeners = null;
 
     public void setValue(T value) {
         if(isDone()) throw new IllegalStateException("The value cannot be set because the computation is already done");
         this.value = value;
-        done = true;
+        complete();
+    }
+
+    /**
+     * Completes the computation with the given exception. {@link #get()} will
+     * throw an {@link IllegalStateException} caused by it.
+     *
+     * @param exception The exception the computation failed with
+     */
+    public void setException(RuntimeException exception) {
+        if(isDone()) throw new IllegalStateException("The exception cannot be set because the computation is already done");
+        this.exception = exception;
+        complete();
     }
 
     @Override
     public boolean cancel() {
-        boolean out = !canceled && !done;
-        canceled = done = true;
-        return out;
+        if(done) return false;
+        canceled = true;
+        complete();
+        return true;
+    }
+
+    /**
+     * Marks the computation as done and runs the listeners. If a listener
+     * throws an exception, the remaining listeners are run anyway and the
+     * exception is thrown afterwards.
+     */
+    private void complete() {
+        done = true;
+        List<Consumer<? super Future<T>>> listeners = this.listeners;
+        if(listeners == null) return;
+        this.listeners = null;
+
+        RuntimeException exception = null;
+        for(Consumer<? super Future<T>> listener : listeners) {
+            try {
+                listener.accept(this);
+            } catch(RuntimeException e) {
+                if(exception == null) exception = e;
+                else exception.addSuppressed(e);
+            }
+        }
+        if(exception != null) throw exception;
     }
 
     @Override
@@ -32,6 +79,41 @@ public class FutureImpl<T> implements Future<T> {
     public T get() throws IllegalStateException {
         if(!done) throw new IllegalStateException("Result is not yet computed");
         if(canceled) throw new IllegalStateException("Execution has been canceled");
+        if(exception != null) throw new IllegalStateException("Execution failed", exception);
         return value;
     }
+
+    @Override
+    public Future<T> whenDone(Consumer<? super Future<T>> action) {
+        if(action == null) throw new NullPointerException();
+        if(done) action.accept(this);
+        else {
+            if(listeners == null) listeners = new ArrayList<>(1);
+            listeners.add(action);
+        }
+        return this;
+    }
+
+    /**
+     * If the given computation was cancelled or failed, cancels or fails the
+     * given future the same way. Uses only the methods of {@link Future} so
+     * that it works for any implementation.
+     *
+     * @param source The computation to forward, which has to be done
+     * @param out The future to cancel or fail
+     * @return Weather the computation did not complete normally
+     */
+    static boolean forwardFailure(Future<?> source, FutureImpl<?> out) {
+        if(source.isCancelled()) {
+            out.cancel();
+            return true;
+        }
+        try {
+            source.get();
+            return false;
+        } catch(IllegalStateException e) {
+            out.setException(e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e);
+            return true;
+        }
+    }
 }